@@ -5,12 +5,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
 @EntityScan(basePackages = "com.klef.sdp.model")
 @EnableJpaRepositories(basePackages = "com.klef.sdp.repository")
+// Needed by the blob garbage collector; it also starts SessionCleanupTask, which never ran before
+@EnableScheduling
 public class SdpBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,50 @@
+package com.klef.sdp.config;
+
+import com.klef.sdp.storage.BlobRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+@Component
+public class BlobGarbageCollector {
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Value("${sdp.storage.gc-interval-ms:600000}")
+    private long intervalMs;
+
+    // How long unreferenced content is kept, so an in-flight upload of the same bytes can still claim it
+    @Value("${sdp.storage.gc-grace-minutes:10}")
+    private long graceMinutes;
+
+    // A run stops after this long and the next run picks up the rest
+    @Value("${sdp.storage.gc-budget-ms:30000}")
+    private long budgetMs;
+
+    @Scheduled(fixedDelayString = "${sdp.storage.gc-interval-ms:600000}")
+    public void collectUnreferencedBlobs() {
+        scheduledJobLock.runExclusively("blob-gc", 1800000, intervalMs * 9 / 10, this::collect);
+    }
+
+    private void collect() {
+        long deadline = System.currentTimeMillis() + budgetMs;
+        Date cutoff = new Date(System.currentTimeMillis() - graceMinutes * 60 * 1000);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = blobRegistry.collectGarbage(cutoff, BATCH_SIZE);
+            total += deleted;
+        } while (deleted == BATCH_SIZE && System.currentTimeMillis() < deadline);
+        if (total > 0) {
+            System.out.println("Deleted " + total + " unreferenced blobs");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.klef.sdp.config;
+
+import com.klef.sdp.repository.BlobRecordRepository;
+import com.klef.sdp.repository.FileRepository;
+import com.klef.sdp.storage.BlobRegistry;
+import com.klef.sdp.storage.BlobStore;
+import com.klef.sdp.storage.LegacyFileDataInputStream;
+import com.klef.sdp.storage.StoredBlob;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Moves file contents that were stored in the files.file_data LONGBLOB column
+ * into the BlobStore. Runs in the background after startup; until a row is
+ * migrated it is still served from the legacy column.
+ */
+@Component
+@DependsOn("entityManagerFactory") // Hibernate's schema update must have run
+public class BlobMigrationJob {
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private BlobRecordRepository blobRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean legacyColumnPresent;
+
+    @PostConstruct
+    public void relaxLegacyColumn() {
+        List<String> nullable = jdbcTemplate.queryForList(
+                "SELECT is_nullable FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = 'files' AND column_name = 'file_data'",
+                String.class);
+        legacyColumnPresent = !nullable.isEmpty();
+        if (legacyColumnPresent && "NO".equalsIgnoreCase(nullable.get(0))) {
+            // New rows no longer write file_data, so it can't stay NOT NULL
+            jdbcTemplate.execute("ALTER TABLE files MODIFY file_data LONGBLOB NULL");
+            System.out.println("Made files.file_data nullable for blob store migration");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        // Content stored before reference counting gets its blobs row (idempotent)
+        int registered = blobRecordRepository.registerUntrackedBlobs();
+        if (registered > 0) {
+            System.out.println("Registered " + registered + " untracked blobs");
+        }
+        if (!legacyColumnPresent) {
+            return;
+        }
+        Thread worker = new Thread(this::migrateAll, "blob-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void migrateAll() {
+        int migrated = 0;
+        while (true) {
+            List<Long> ids = fileRepository.findLegacyFileIds(BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            int failures = 0;
+            for (Long id : ids) {
+                try {
+                    migrate(id);
+                    migrated++;
+                } catch (Exception e) {
+                    failures++;
+                    System.err.println("Failed to migrate file " + id + " to blob store: " + e.getMessage());
+                }
+            }
+            if (failures == ids.size()) {
+                // Nothing in this batch can move; don't spin on it
+                break;
+            }
+        }
+        if (migrated > 0) {
+            System.out.println("Migrated " + migrated + " files to blob store");
+        }
+    }
+
+    // Safe to run concurrently on several pods: the store is content-addressed and the update is guarded
+    public void migrate(Long fileId) throws IOException {
+        Long length = fileRepository.findLegacyFileDataLength(fileId);
+        if (length == null) {
+            return;
+        }
+        StoredBlob blob;
+        try (InputStream in = new LegacyFileDataInputStream(fileRepository, fileId, length)) {
+            blob = blobStore.put(in);
+        }
+        Boolean moved = transactionTemplate.execute(status -> {
+            if (fileRepository.moveLegacyFileData(fileId, blob.getKey(), blob.getSize(), blob.getChecksum()) == 0) {
+                return false;
+            }
+            blobRegistry.acquire(blob);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(moved)) {
+            // Another pod migrated it first, or the row was deleted meanwhile
+            blobRegistry.abandon(blob);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.klef.sdp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.klef.sdp.model.ActiveSession;
+import com.klef.sdp.model.ProfileThumbnail;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String PROFILE_THUMBNAILS = "profileThumbnails";
+    public static final String ACTIVE_SESSIONS = "activeSessions";
+
+    @Value("${sdp.cache.spec:maximumSize=10000,expireAfterWrite=60s}")
+    private String cacheSpec;
+
+    @Value("${sdp.cache.thumbnail-max-bytes:33554432}")
+    private long thumbnailMaxBytes;
+
+    @Value("${sdp.cache.session-max-entries:50000}")
+    private long sessionMaxEntries;
+
+    // Transaction-aware: evictions made inside a transaction only apply once it commits,
+    // so a concurrent reader can't put the old value back before the change is visible
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setCacheSpecification(cacheSpec);
+        caffeine.setAllowNullValues(false);
+        // Hot avatars, bounded by total image bytes and evicted least recently used first.
+        // A changed picture is evicted on every pod through GroupCacheEvictor
+        caffeine.registerCustomCache(PROFILE_THUMBNAILS, Caffeine.newBuilder()
+                .maximumWeight(thumbnailMaxBytes)
+                .weigher((Object key, Object value) -> ((ProfileThumbnail) value).getData().length)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .build());
+        // Passkey lookups, each dropped the moment its session expires
+        caffeine.registerCustomCache(ACTIVE_SESSIONS, Caffeine.newBuilder()
+                .maximumSize(sessionMaxEntries)
+                .expireAfter(Expiry.<Object, Object>creating((key, value) ->
+                        Duration.ofMillis(Math.max(0, ((ActiveSession) value).getExpiresAt().getTime() - System.currentTimeMillis()))))
+                .build());
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+}
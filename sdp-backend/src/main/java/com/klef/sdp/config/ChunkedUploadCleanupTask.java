@@ -0,0 +1,36 @@
+package com.klef.sdp.config;
+
+import com.klef.sdp.service.ChunkedUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+// Drops resumable uploads that were never committed, along with their staged chunks
+@Component
+public class ChunkedUploadCleanupTask {
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Value("${sdp.upload.expiry-hours:24}")
+    private int expiryHours;
+
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void cleanUpStaleUploads() {
+        scheduledJobLock.runExclusively("chunked-upload-cleanup", 1800000, 3300000, this::purgeStaleUploads);
+    }
+
+    private void purgeStaleUploads() {
+        // Measured from the last chunk received, so a slow upload that is still going is kept
+        Date cutoff = new Date(System.currentTimeMillis() - expiryHours * 3600000L);
+        int purged = chunkedUploadService.purgeStale(cutoff);
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " abandoned chunked uploads");
+        }
+    }
+}
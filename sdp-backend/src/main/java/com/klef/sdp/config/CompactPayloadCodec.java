@@ -0,0 +1,158 @@
+package com.klef.sdp.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-connection binary encoding for chat and session broadcasts.
+ * A client on the raw WebSocket endpoint that sends "payload-encoding:cbor"
+ * in its CONNECT frame receives /topic/group/** and /topic/session/** bodies
+ * as CBOR in binary frames, with timestamps as epoch milliseconds, instead of
+ * JSON text. Everyone else keeps getting JSON. SockJS can't carry binary
+ * frames, so the header is ignored there.
+ */
+@Component
+public class CompactPayloadCodec implements HandshakeInterceptor {
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final String CBOR = "cbor";
+
+    private static final String RAW_WEBSOCKET_ATTR = "sdp.rawWebSocket";
+
+    @Value("${sdp.websocket.compact-payloads.enabled:true}")
+    private boolean enabled;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    // STOMP session ids that negotiated CBOR
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    private final ChannelInterceptor negotiation = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+            String sessionId = accessor.getSessionId();
+            if (sessionId == null || accessor.getCommand() == null) {
+                return message;
+            }
+            switch (accessor.getCommand()) {
+                case CONNECT, STOMP -> {
+                    Map<String, Object> attributes = accessor.getSessionAttributes();
+                    boolean rawWebSocket = attributes != null && Boolean.TRUE.equals(attributes.get(RAW_WEBSOCKET_ATTR));
+                    if (enabled && rawWebSocket && CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))) {
+                        cborSessions.add(sessionId);
+                    }
+                }
+                case DISCONNECT -> cborSessions.remove(sessionId);
+                default -> { }
+            }
+            return message;
+        }
+    };
+
+    private final ChannelInterceptor encoder = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (cborSessions.isEmpty()
+                    || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                    || !cborSessions.contains(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                    || !isCompactDestination(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+                    || !(message.getPayload() instanceof byte[] json)) {
+                return message;
+            }
+            try {
+                byte[] cbor = toCbor(json);
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                // octet-stream is what makes the STOMP handler send a binary frame
+                accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+                accessor.removeNativeHeader(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER);
+                return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+            } catch (IOException e) {
+                // Not JSON after all; deliver it unchanged
+                return message;
+            }
+        }
+    };
+
+    public ChannelInterceptor negotiationInterceptor() {
+        return negotiation;
+    }
+
+    public ChannelInterceptor encodingInterceptor() {
+        return encoder;
+    }
+
+    // Registered on the raw WebSocket endpoint only, to tell it apart from SockJS
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(RAW_WEBSOCKET_ATTR, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private boolean isCompactDestination(String destination) {
+        return destination != null
+                && (destination.startsWith("/topic/group/") || destination.startsWith("/topic/session/"));
+    }
+
+    byte[] toCbor(byte[] json) throws IOException {
+        JsonNode tree = jsonMapper.readTree(json);
+        return cborMapper.writeValueAsBytes(compactTimestamps(tree));
+    }
+
+    // ISO-8601 timestamps become epoch millis; only "timestamp" and "...At" fields
+    // are touched so message content that happens to look like a date is left alone
+    private JsonNode compactTimestamps(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            for (Map.Entry<String, JsonNode> field : object.properties()) {
+                JsonNode value = field.getValue();
+                if (value.isTextual() && isTimestampField(field.getKey())) {
+                    try {
+                        field.setValue(object.numberNode(OffsetDateTime.parse(value.asText()).toInstant().toEpochMilli()));
+                    } catch (DateTimeParseException e) {
+                        // Leave it as text
+                    }
+                } else {
+                    compactTimestamps(value);
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            array.forEach(this::compactTimestamps);
+        }
+        return node;
+    }
+
+    private boolean isTimestampField(String name) {
+        return name.equals("timestamp") || name.endsWith("At");
+    }
+}
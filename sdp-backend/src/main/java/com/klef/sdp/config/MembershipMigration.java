@@ -0,0 +1,59 @@
+package com.klef.sdp.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies memberships from the old group_usernames and session_usernames
+ * element collections into group_members and session_members once, then
+ * renames each old table so it is not copied again (which would bring back
+ * users who have since left). Replicas starting together take turns through
+ * ScheduledJobLock, and a table another replica already renamed counts as done.
+ */
+@Component
+@DependsOn("entityManagerFactory") // group_members and session_members must exist
+public class MembershipMigration {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @PostConstruct
+    public void migrateLegacyMembers() {
+        scheduledJobLock.runExclusively("membership-migration", 600000, 0, () -> {
+            migrate("group_usernames", "group_members", "group_id");
+            migrate("session_usernames", "session_members", "session_id");
+        });
+    }
+
+    private void migrate(String legacyTable, String membersTable, String ownerColumn) {
+        if (!tableExists(legacyTable)) {
+            return;
+        }
+        try {
+            int copied = jdbcTemplate.update(
+                    "INSERT IGNORE INTO " + membersTable + " (" + ownerColumn + ", username, joined_at) " +
+                    "SELECT DISTINCT " + ownerColumn + ", username, CURRENT_TIMESTAMP FROM " + legacyTable + " WHERE username IS NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + legacyTable + " RENAME TO " + legacyTable + "_legacy");
+            System.out.println("Moved " + copied + " memberships from " + legacyTable + " to " + membersTable);
+        } catch (DataAccessException e) {
+            if (tableExists(legacyTable)) {
+                throw e;
+            }
+            // Renamed by another replica in the meantime
+            System.out.println(legacyTable + " was already migrated");
+        }
+    }
+
+    private boolean tableExists(String table) {
+        return !jdbcTemplate.queryForList(
+                "SELECT table_name FROM information_schema.tables " +
+                "WHERE table_schema = DATABASE() AND table_name = ?",
+                String.class, table).isEmpty();
+    }
+}
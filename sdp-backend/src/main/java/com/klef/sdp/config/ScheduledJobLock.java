@@ -0,0 +1,68 @@
+package com.klef.sdp.config;
+
+import com.klef.sdp.repository.SchedulerLockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a @Scheduled job to one pod at a time. Every pod still fires the
+ * schedule, but only the one that takes the job's row in scheduler_locks
+ * runs it; the rest skip that run.
+ *
+ * lockAtMostMs bounds how long a pod that died mid-run keeps the job, so
+ * it should be well above the job's longest run. lockAtLeastMs keeps the
+ * lease after a quick run, so that pods whose schedules are out of step
+ * don't run it again straight away; set it a little below the interval
+ * to get one run per interval across the cluster. Both are applied in
+ * whole seconds: lockAtMostMs rounded up, lockAtLeastMs rounded down.
+ */
+@Component
+public class ScheduledJobLock {
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private final String owner = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    // Runs the job if no other pod holds it; false when skipped
+    public boolean runExclusively(String name, long lockAtMostMs, long lockAtLeastMs, Runnable job) {
+        try {
+            if (registered.add(name)) {
+                schedulerLockRepository.register(name);
+            }
+            // Seconds keep the interval arithmetic in range for the database's integer TIMESTAMPADD
+            if (schedulerLockRepository.acquire(name, owner, (lockAtMostMs + 999) / 1000) == 0) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            registered.remove(name);
+            System.err.println("Could not lock scheduled job " + name + ", skipping this run: " + e.getMessage());
+            return false;
+        }
+        try {
+            job.run();
+        } finally {
+            try {
+                schedulerLockRepository.release(name, owner, lockAtLeastMs / 1000);
+            } catch (RuntimeException e) {
+                // The lease runs out by itself after lockAtMostMs
+                System.err.println("Could not release scheduled job " + name + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
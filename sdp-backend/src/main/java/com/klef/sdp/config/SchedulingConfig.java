@@ -0,0 +1,37 @@
+package com.klef.sdp.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Runs @Scheduled jobs on their own pool, sized by spring.task.scheduling.pool.size.
+ * Boot skips its scheduler because the WebSocket broker defines a TaskScheduler, so
+ * the jobs would otherwise share the broker's heartbeat threads. The pool is not a
+ * bean: Boot would pick it up as the STOMP channel executor.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+    @Autowired
+    private ThreadPoolTaskSchedulerBuilder taskSchedulerBuilder;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        scheduler = taskSchedulerBuilder.build();
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
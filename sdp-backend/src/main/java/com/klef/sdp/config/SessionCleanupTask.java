@@ -1,15 +1,37 @@
 package com.klef.sdp.config;
 
 import com.klef.sdp.model.Session;
+import com.klef.sdp.model.SessionExpiredEvent;
 import com.klef.sdp.repository.FileRepository;
+import com.klef.sdp.repository.SessionMemberRepository;
 import com.klef.sdp.repository.SessionRepository;
+import com.klef.sdp.service.SessionLookup;
+import com.klef.sdp.storage.BlobRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Deletes expired sessions in batches: the ids come from an index range scan
+ * on expires_at, and each batch removes its files, members and sessions with
+ * one bulk DELETE apiece, releasing blob references per checksum. A run stops
+ * when nothing is left or its time budget is spent, so the work done per run
+ * follows the number of expired sessions rather than the size of the table.
+ * Only one pod sweeps at a time, through ScheduledJobLock.
+ *
+ * SessionExpiryWheel hands over sessions the moment they expire, so the
+ * sweep only catches what no pod had scheduled. Participants are sent a
+ * SessionExpiredEvent by whichever pod deleted the session.
+ */
 @Component
 public class SessionCleanupTask {
     @Autowired
@@ -18,17 +40,97 @@ public class SessionCleanupTask {
     @Autowired
     private FileRepository fileRepository;
 
-    @Scheduled(fixedRate = 60000) // Run every minute
+    @Autowired
+    private SessionMemberRepository sessionMemberRepository;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SessionLookup sessionLookup;
+
+    @Value("${sdp.sessions.cleanup-batch-size:200}")
+    private int batchSize;
+
+    @Value("${sdp.sessions.cleanup-budget-ms:10000}")
+    private long budgetMs;
+
+    @Scheduled(fixedDelay = 60000) // Run a minute after the previous run finished
     public void cleanUpExpiredSessions() {
-        List<Session> sessions = sessionRepository.findAll();
-        Date now = new Date();
-        for (Session session : sessions) {
-            if (session.getExpiresAt().before(now)) {
-                // Delete associated files
-                fileRepository.findBySessionId(session.getId()).forEach(fileRepository::delete);
-                // Delete session
-                sessionRepository.delete(session);
+        // One pod per minute; a run stops at its budget, long before the lease runs out
+        scheduledJobLock.runExclusively("session-cleanup", 600000, 50000, this::reapExpiredSessions);
+    }
+
+    private void reapExpiredSessions() {
+        long deadline = System.currentTimeMillis() + budgetMs;
+        int reaped = 0;
+        while (System.currentTimeMillis() < deadline) {
+            List<Long> expired = sessionRepository.findExpiredIds(new Date(), PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            try {
+                reaped += reapSessions(expired);
+            } catch (RuntimeException e) {
+                // Rolled back as a whole; the batch is tried again on the next run
+                System.err.println("Failed to delete expired sessions: " + e.getMessage());
+                break;
+            }
+            if (expired.size() < batchSize) {
+                break;
             }
         }
+        if (reaped > 0) {
+            System.out.println("Deleted " + reaped + " expired sessions");
+        }
+    }
+
+    /**
+     * Deletes those of the given sessions that have expired and notifies
+     * their participants; the rest are skipped. Returns how many were
+     * deleted. Sessions already deleted elsewhere are skipped too, so each
+     * expiry is announced once across pods.
+     */
+    public int reapSessions(List<Long> candidateIds) {
+        List<Session> reaped = transactionTemplate.execute(status -> reapBatch(candidateIds, new Date()));
+        if (reaped == null) {
+            return 0;
+        }
+        for (Session session : reaped) {
+            sessionLookup.evict(session.getPasskey());
+            messagingTemplate.convertAndSend("/topic/session/" + session.getPasskey(),
+                    new SessionExpiredEvent(session.getPasskey(), session.getExpiresAt()));
+        }
+        return reaped.size();
+    }
+
+    private List<Session> reapBatch(List<Long> candidateIds, Date now) {
+        List<Session> sessions = sessionRepository.lockExpired(candidateIds, now);
+        if (sessions.isEmpty()) {
+            return sessions;
+        }
+        List<Long> sessionIds = sessions.stream()
+                .map(Session::getId)
+                .toList();
+
+        Map<String, Long> references = new HashMap<>();
+        for (Object[] row : fileRepository.countChecksumsBySessionIds(sessionIds)) {
+            references.put((String) row[0], (Long) row[1]);
+        }
+        // Same transaction as the deletes, so a failure leaves both counts and rows untouched
+        blobRegistry.release(references);
+        fileRepository.deleteBySessionIds(sessionIds);
+        sessionMemberRepository.removeMembersOfSessions(sessionIds);
+        sessionRepository.deleteByIds(sessionIds);
+        return sessions;
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,141 @@
 package com.klef.sdp.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    // "simple" keeps subscriptions in this JVM; "relay" forwards them to an external
+    // STOMP broker so a broadcast from any replica reaches clients on every replica
+    @Value("${sdp.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${sdp.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${sdp.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${sdp.websocket.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${sdp.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${sdp.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Transport tuning; see the WebSocket section of application.properties
+    @Value("${sdp.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${sdp.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${sdp.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${sdp.websocket.outbound.core-pool-size:16}")
+    private int outboundCorePoolSize;
+
+    @Value("${sdp.websocket.outbound.max-pool-size:64}")
+    private int outboundMaxPoolSize;
+
+    @Value("${sdp.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${sdp.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${sdp.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${sdp.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${sdp.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Autowired
+    private CompactPayloadCodec compactPayloadCodec;
+
+    private TaskScheduler heartbeatScheduler;
+
+    // Lazy: the scheduler is created by the same configuration that calls this class
+    @Autowired
+    public void setHeartbeatScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler heartbeatScheduler) {
+        this.heartbeatScheduler = heartbeatScheduler;
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // For subscriptions from clients
-        config.enableSimpleBroker("/topic");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode);
+            relay.setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs);
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Heartbeats let both sides notice dead connections instead of buffering for them
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(heartbeatScheduler);
+        }
         // For messages sent from clients
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+        registration.interceptors(compactPayloadCodec.negotiationInterceptor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+        registration.interceptors(compactPayloadCodec.encodingInterceptor());
+    }
+
+    /**
+     * Each session buffers at most sendBufferSizeLimit bytes of pending frames.
+     * A client that falls further behind, or blocks a send for longer than
+     * sendTimeLimitMs, is disconnected, so a slow consumer in a large group
+     * can't hold up the outbound threads serving everyone else.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Register endpoint with SockJS support
@@ -25,8 +143,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("http://localhost:5173", "http://10.46.2.12:5173", "http://localhost:30030","http://localhost:3000")
                 .withSockJS(); // Enables SockJS fallback
 
-        // Register the same endpoint for raw WebSocket connections
+        // Register the same endpoint for raw WebSocket connections; only these can negotiate binary payloads
         registry.addEndpoint("/ws")
-                .setAllowedOriginPatterns("http://localhost:5173", "http://10.46.2.12:5173", "http://localhost:30030","http://localhost:3000");
+                .setAllowedOriginPatterns("http://localhost:5173", "http://10.46.2.12:5173", "http://localhost:30030","http://localhost:3000")
+                .addInterceptors(compactPayloadCodec);
     }
 }
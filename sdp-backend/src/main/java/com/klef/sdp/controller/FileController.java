@@ -5,8 +5,11 @@ import java.util.List;
 
 import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.model.FileMetadata;
 import com.klef.sdp.service.FileService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -30,15 +33,29 @@ public class FileController {
         return ResponseEntity.ok(fileDTO);
     }
 
+    /**
+     * Serves the file as a Resource so Spring MVC answers Range requests with
+     * 206 Partial Content, and If-None-Match / If-Modified-Since with 304
+     * based on the ETag (content SHA-256) and upload time set here.
+     */
     @GetMapping("/download/{id}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long id) {
-        FileEntity fileEntity = service.getFile(id);
+    public ResponseEntity<Resource> downloadFile(@PathVariable Long id) throws IOException {
+        FileMetadata metadata = service.getFileMetadata(id);
 
-        if (fileEntity != null) {
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(fileEntity.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileEntity.getFileName() + "\"")
-                    .body(fileEntity.getFileData());
+        // A legacy row with no content left to migrate has no storage key; there is nothing to serve
+        if (metadata != null && metadata.getStorageKey() != null) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(metadata.getFileType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + metadata.getFileName() + "\"")
+                // Contents of a file id never change, so revalidating is always enough
+                .cacheControl(CacheControl.noCache().cachePrivate());
+            if (metadata.getChecksum() != null) {
+                response.eTag(metadata.getChecksum());
+            }
+            if (metadata.getUploadedAt() != null) {
+                response.lastModified(metadata.getUploadedAt().getTime());
+            }
+            return response.body(service.getFileContent(metadata));
 
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -55,6 +72,23 @@ public class FileController {
         }
     }
 
+    @PostMapping("/copy-to-drive/{fileId}/{userId}")
+    public ResponseEntity<?> copyToDrive(@PathVariable Long fileId, @PathVariable int userId) {
+        try {
+            FileEntity fileEntity = service.copyFileToDrive(fileId, userId);
+            return ResponseEntity.ok(new FileDTO(fileEntity));
+        } catch (RuntimeException e) {
+            if ("File already exists in your drive".equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            } else if ("File not found".equals(e.getMessage()) || "User not found".equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to copy file: " + e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to copy file: " + e.getMessage());
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public String delete(@PathVariable Long id) {
         return service.delete(id);
@@ -3,6 +3,7 @@ package com.klef.sdp.controller;
 import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.Group;
 import com.klef.sdp.model.Message;
+import com.klef.sdp.model.MessageSyncPage;
 import com.klef.sdp.service.GroupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -94,18 +95,21 @@ public class GroupController {
             Message savedMessage = groupService.sendMessage(groupId, message.getSenderUsername(), message.getContent(), message.getType());
             System.out.println("Message sent: " + savedMessage);
             return ResponseEntity.ok(savedMessage);
+        } catch (IllegalStateException e) {
+            // Message queue is full; the client should back off and resend
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("Error sending message: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
-    @GetMapping("/messages/{groupId}")
+    @GetMapping(value = "/messages/{groupId}", params = {"!before", "!after", "!limit"})
     public ResponseEntity<?> getGroupMessages(@PathVariable String groupId) {
         try {
             System.out.println("Fetching messages for groupId: " + groupId);
             List<Message> messages = groupService.getGroupMessages(groupId);
-            System.out.println("Messages retrieved: " + messages);
+            System.out.println("Messages retrieved: " + messages.size());
             return ResponseEntity.ok(messages);
         } catch (Exception e) {
             System.err.println("Error fetching messages for groupId " + groupId + ": " + e.getMessage());
@@ -114,6 +118,53 @@ public class GroupController {
         }
     }
 
+    // One page of history, oldest first; X-Next-Cursor is the id to pass as before (or after) for the next page
+    @GetMapping("/messages/{groupId}")
+    public ResponseEntity<?> getGroupMessagesPage(
+            @PathVariable String groupId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<Message> messages = groupService.getGroupMessages(groupId, before, after, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            // Compare with the clamped size, or a limit above the maximum would never get a cursor
+            if (!messages.isEmpty() && messages.size() == GroupService.messagesPageSize(limit)) {
+                Message edge = after != null ? messages.get(messages.size() - 1) : messages.get(0);
+                response.header("X-Next-Cursor", String.valueOf(edge.getId()));
+            }
+            return response.body(messages);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error fetching messages for groupId " + groupId + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching messages: " + e.getMessage());
+        }
+    }
+
+    // Catch-up after a reconnect: messages since a cursor in all of the user's groups.
+    // Pass X-Next-Cursor as since next time (call without since for a starting cursor);
+    // X-Has-More means call again right away.
+    @GetMapping("/sync/{username}")
+    public ResponseEntity<?> syncMessages(
+            @PathVariable String username,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long sinceTime,
+            @RequestParam(defaultValue = "500") int limit) {
+        try {
+            MessageSyncPage page = groupService.getMessagesSince(username, since, sinceTime, limit);
+            return ResponseEntity.ok()
+                    .header("X-Next-Cursor", String.valueOf(page.getNextCursor()))
+                    .header("X-Has-More", String.valueOf(page.isHasMore()))
+                    .body(page.getMessages());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error syncing messages for username " + username + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error syncing messages: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/shared-files/{username}")
     public ResponseEntity<?> getSharedFiles(@PathVariable String username) {
         try {
@@ -1,23 +1,36 @@
 package com.klef.sdp.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.klef.sdp.model.FileEntity;
 import com.klef.sdp.model.Session;
+import com.klef.sdp.model.SessionFileDTO;
 import com.klef.sdp.service.SessionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:30030")
 @RestController
 @RequestMapping("/api/sessions")
 public class SessionController {
+    private static final int STREAM_PAGE_SIZE = 200;
+
     @Autowired
     private SessionService sessionService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/create")
     public ResponseEntity<?> createSession(@RequestBody SessionRequest request) {
         try {
@@ -51,15 +64,64 @@ public class SessionController {
         }
     }
 
-    @GetMapping("/files/{passkey}")
-    public ResponseEntity<?> getSessionFiles(@PathVariable String passkey) {
+    /**
+     * Lists file metadata for a session as a JSON array. The whole list is
+     * streamed page by page, so large sessions never sit in memory. Clients
+     * that want explicit pages pass a limit instead (see below).
+     */
+    @GetMapping(value = "/files/{passkey}", params = "!limit")
+    public ResponseEntity<StreamingResponseBody> getSessionFiles(
+            @PathVariable String passkey,
+            @RequestParam(required = false) Long afterId) {
+        Long sessionId;
         try {
-            List<FileEntity> files = sessionService.getSessionFiles(passkey);
-            return ResponseEntity.ok(files);
+            sessionId = sessionService.getActiveSessionId(passkey);
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : "Failed to fetch files";
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+        }
+        StreamingResponseBody body = out -> writeSessionFiles(sessionId, afterId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // One keyset page; X-Next-Cursor carries the afterId for the next page when more files follow
+    @GetMapping(value = "/files/{passkey}", params = "limit")
+    public ResponseEntity<?> getSessionFilesPage(
+            @PathVariable String passkey,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam int limit) {
+        try {
+            Long sessionId = sessionService.getActiveSessionId(passkey);
+            List<SessionFileDTO> files = sessionService.getSessionFiles(sessionId, afterId, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            // Compare with the clamped size, or a limit above the maximum would never get a cursor
+            if (!files.isEmpty() && files.size() == SessionService.filesPageSize(limit)) {
+                response.header("X-Next-Cursor", String.valueOf(files.get(files.size() - 1).getId()));
+            }
+            return response.body(files);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
+
+    private void writeSessionFiles(Long sessionId, Long afterId, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Long cursor = afterId;
+            List<SessionFileDTO> page;
+            do {
+                page = sessionService.getSessionFiles(sessionId, cursor, STREAM_PAGE_SIZE);
+                for (SessionFileDTO file : page) {
+                    generator.writeObject(file);
+                    cursor = file.getId();
+                }
+                generator.flush();
+            } while (page.size() == SessionService.filesPageSize(STREAM_PAGE_SIZE));
+            generator.writeEndArray();
+        }
+    }
 }
 
 class SessionRequest {
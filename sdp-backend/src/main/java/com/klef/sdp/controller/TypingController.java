@@ -1,16 +1,20 @@
 package com.klef.sdp.controller;
 
 import com.klef.sdp.model.TypingMessage;
+import com.klef.sdp.service.TypingAggregator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Controller;
 
 @Controller
 public class TypingController {
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    // Updates go out to /topic/group/{groupId}/typing from the aggregator
     @MessageMapping("/group/{groupId}/typing")
-    @SendTo("/topic/group/{groupId}/typing")
-    public TypingMessage handleTyping(@DestinationVariable Long groupId, TypingMessage message) {
-        return message;
+    public void handleTyping(@DestinationVariable String groupId, TypingMessage message) {
+        typingAggregator.record(groupId, message);
     }
 }
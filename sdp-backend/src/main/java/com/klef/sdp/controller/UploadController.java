@@ -0,0 +1,107 @@
+package com.klef.sdp.controller;
+
+import com.klef.sdp.model.ChunkedUpload;
+import com.klef.sdp.model.FileDTO;
+import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Resumable upload protocol for large files:
+ * <ol>
+ *   <li>POST /api/uploads with the file name, type and size; returns the upload id, chunk size and chunk count</li>
+ *   <li>PUT /api/uploads/{uploadId}/chunks/{index} with the raw bytes of each chunk, in any order or in parallel</li>
+ *   <li>GET /api/uploads/{uploadId} lists missing chunks after an interruption</li>
+ *   <li>POST /api/uploads/{uploadId}/commit stores the file and returns it</li>
+ * </ol>
+ * Set passkey on init to upload into a session instead of the user's drive, and
+ * checksum (hex SHA-256 of the whole file) to have commit verify the content.
+ */
+@CrossOrigin("http://localhost:30030")
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<?> init(@RequestBody UploadInitRequest request) {
+        try {
+            ChunkedUpload upload = chunkedUploadService.init(request.getUserId(), request.getPasskey(),
+                    request.getFileName(), request.getFileType(), request.getTotalSize(), request.getChunkSize(),
+                    request.getChecksum());
+            return ResponseEntity.status(HttpStatus.CREATED).body(upload);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> status(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    // Body is the raw chunk (application/octet-stream), streamed straight to disk
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> putChunk(@PathVariable String uploadId, @PathVariable int index, HttpServletRequest request) {
+        try {
+            chunkedUploadService.putChunk(uploadId, index, request.getInputStream());
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<?> commit(@PathVariable String uploadId) {
+        try {
+            FileEntity fileEntity = chunkedUploadService.commit(uploadId);
+            return ResponseEntity.ok(new FileDTO(fileEntity));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abort(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+}
+
+class UploadInitRequest {
+    private int userId;
+    private String passkey;
+    private String fileName;
+    private String fileType;
+    private long totalSize;
+    private Integer chunkSize;
+    private String checksum;
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public String getPasskey() { return passkey; }
+    public void setPasskey(String passkey) { this.passkey = passkey; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    public Integer getChunkSize() { return chunkSize; }
+    public void setChunkSize(Integer chunkSize) { this.chunkSize = chunkSize; }
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+}
@@ -1,9 +1,12 @@
 package com.klef.sdp.controller;
 
 import com.klef.sdp.model.FileDTO;
+import com.klef.sdp.model.ProfileThumbnail;
 import com.klef.sdp.model.User;
+import com.klef.sdp.service.ThumbnailGenerator;
 import com.klef.sdp.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -76,6 +79,9 @@ public class UserController {
         try {
             String result = userService.initiatePasswordReset(email);
             return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            // Too many codes sent to this email (or pending resets) for now
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
@@ -101,6 +107,9 @@ public class UserController {
         try {
             String result = userService.resendOTP(email);
             return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            // Too many codes sent to this email (or pending resets) for now
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
@@ -175,8 +184,30 @@ public class UserController {
         }
     }
 
+    // With size (in px) a square thumbnail is served instead of the original. Clients
+    // revalidate it with its ETag, so a new picture shows up on the next request.
     @GetMapping(value = "/profile-picture/{userId}")
-    public ResponseEntity<byte[]> getProfilePicture(@PathVariable int userId) {
+    public ResponseEntity<byte[]> getProfilePicture(
+            @PathVariable int userId,
+            @RequestParam(required = false) Integer size) {
+        int variant = size != null ? ThumbnailGenerator.variantFor(size) : -1;
+        if (variant > 0) {
+            ProfileThumbnail thumbnail = null;
+            try {
+                thumbnail = userService.getProfileThumbnail(userId, variant);
+            } catch (RuntimeException e) {
+                // e.g. two first requests racing to create the thumbnails; serve the original this time
+                System.err.println("Thumbnail lookup failed for user " + userId + ": " + e.getMessage());
+            }
+            if (thumbnail != null) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(thumbnail.getContentType()))
+                        .cacheControl(CacheControl.noCache().cachePublic())
+                        .eTag(thumbnail.getChecksum())
+                        .body(thumbnail.getData());
+            }
+        }
+
         User user = userService.viewbyid(userId);
         if (user == null || user.getProfilePicture() == null) {
             return ResponseEntity.notFound().build();
@@ -0,0 +1,104 @@
+package com.klef.sdp.controller;
+
+import com.klef.sdp.service.MessageIngestPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Queue depth and thread usage of the WebSocket channels, for dashboards and load tests
+@CrossOrigin("http://localhost:30030")
+@RestController
+@RequestMapping("/api/stats")
+public class WebSocketStatsController {
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private Executor inboundExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private Executor outboundExecutor;
+
+    @Autowired
+    @Qualifier("brokerChannelExecutor")
+    private Executor brokerExecutor;
+
+    @Autowired
+    private WebSocketMessageBrokerStats brokerStats;
+
+    @Autowired
+    private MessageIngestPipeline messageIngestPipeline;
+
+    @GetMapping("/websocket")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inbound", executorStats(inboundExecutor));
+        stats.put("outbound", executorStats(outboundExecutor));
+        stats.put("broker", executorStats(brokerExecutor));
+        stats.put("messageWriteQueue", messageIngestPipeline.getQueueDepth());
+        stats.put("messageWriteFailures", messageIngestPipeline.getFailedWrites());
+        stats.put("sessions", sessionStats(brokerStats.getWebSocketSessionStats()));
+        stats.put("stomp", stompStats(brokerStats.getStompSubProtocolStats()));
+        stats.put("brokerRelay", relayStats(brokerStats.getStompBrokerRelayStats()));
+        return ResponseEntity.ok(stats);
+    }
+
+    private static Map<String, Object> sessionStats(SubProtocolWebSocketHandler.Stats sessions) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (sessions != null) {
+            stats.put("total", sessions.getTotalSessions());
+            stats.put("webSocket", sessions.getWebSocketSessions());
+            stats.put("httpStreaming", sessions.getHttpStreamingSessions());
+            stats.put("httpPolling", sessions.getHttpPollingSessions());
+            stats.put("limitExceeded", sessions.getLimitExceededSessions());
+            stats.put("noMessagesReceived", sessions.getNoMessagesReceivedSessions());
+            stats.put("transportErrors", sessions.getTransportErrorSessions());
+        }
+        return stats;
+    }
+
+    private static Map<String, Object> stompStats(StompSubProtocolHandler.Stats stomp) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (stomp != null) {
+            stats.put("connect", stomp.getTotalConnect());
+            stats.put("connected", stomp.getTotalConnected());
+            stats.put("disconnect", stomp.getTotalDisconnect());
+        }
+        return stats;
+    }
+
+    // Empty with the simple broker, which has no relay
+    private static Map<String, Object> relayStats(StompBrokerRelayMessageHandler.Stats relay) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (relay != null) {
+            stats.put("handlers", relay.getTotalHandlers());
+            stats.put("connect", relay.getTotalConnect());
+            stats.put("connected", relay.getTotalConnected());
+            stats.put("disconnect", relay.getTotalDisconnect());
+        }
+        return stats;
+    }
+
+    private static Map<String, Object> executorStats(Executor executor) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            stats.put("queueDepth", pool.getQueueSize());
+            stats.put("activeThreads", pool.getActiveCount());
+            stats.put("poolSize", pool.getPoolSize());
+            stats.put("maxPoolSize", pool.getMaxPoolSize());
+            stats.put("completedTasks", pool.getThreadPoolExecutor().getCompletedTaskCount());
+        } else {
+            stats.put("queueDepth", 0); // Runs on the caller's thread
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,22 @@
+package com.klef.sdp.model;
+
+import java.util.Date;
+
+// What session endpoints need to resolve a passkey: the session's id and when it ends
+public class ActiveSession {
+    private Long id;
+    private Date expiresAt;
+
+    public ActiveSession() {}
+
+    public ActiveSession(Long id, Date expiresAt) {
+        this.id = id;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
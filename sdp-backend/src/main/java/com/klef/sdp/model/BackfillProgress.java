@@ -0,0 +1,24 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+
+// How far a one-off backfill over the messages table has got, so an interrupted run resumes where it stopped
+@Entity
+@Table(name = "backfill_progress")
+public class BackfillProgress {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Highest message id already processed
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    public BackfillProgress() {}
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public long getLastId() { return lastId; }
+    public void setLastId(long lastId) { this.lastId = lastId; }
+}
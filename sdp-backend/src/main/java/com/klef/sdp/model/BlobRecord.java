@@ -0,0 +1,49 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// One row per distinct stored content; files rows reference it by checksum
+@Entity
+@Table(name = "blobs", indexes = @Index(name = "idx_blobs_released", columnList = "ref_count, released_at"))
+public class BlobRecord {
+    // Hex SHA-256 of the content
+    @Id
+    @Column(length = 64)
+    private String checksum;
+
+    @Column(name = "storage_key", nullable = false, length = 128)
+    private String storageKey;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    // Number of files rows pointing at this content
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    // Set when refCount drops to zero; the blob is collected after a grace period
+    @Column(name = "released_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date releasedAt;
+
+    public BlobRecord() {}
+
+    // Getters and Setters
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    public String getStorageKey() { return storageKey; }
+    public void setStorageKey(String storageKey) { this.storageKey = storageKey; }
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public Date getReleasedAt() { return releasedAt; }
+    public void setReleasedAt(Date releasedAt) { this.releasedAt = releasedAt; }
+}
@@ -0,0 +1,104 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// A resumable upload in progress; its chunks are staged on disk until commit
+@Entity
+@Table(name = "chunked_uploads", indexes = @Index(name = "idx_chunked_uploads_last_activity", columnList = "last_activity_at"))
+public class ChunkedUpload {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    // Target session, or null for the user's drive
+    @Column(length = 255)
+    private String passkey;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "file_type")
+    private String fileType;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    // SHA-256 (hex) the client declared for the whole file, checked on commit; null when not given
+    @Column(length = 64)
+    private String checksum;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    // Last time a chunk arrived; abandoned uploads are found by this, not by age.
+    // Null only on rows created before it was tracked, which fall back to createdAt
+    @Column(name = "last_activity_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastActivityAt;
+
+    // Set while one request assembles the chunks, so a repeated commit can't store the file twice
+    @Column(nullable = false)
+    private boolean committing;
+
+    // When the commit claim was taken; a claim left by a pod that died expires after a while
+    @Column(name = "commit_started_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date commitStartedAt;
+
+    // Filled in for status responses; chunk state lives on disk, not in this table
+    @Transient
+    private List<Integer> missingChunks = new ArrayList<>();
+
+    public ChunkedUpload() {
+        this.createdAt = new Date();
+        this.lastActivityAt = createdAt;
+    }
+
+    // Size of the chunk at the given index; only the last one may be shorter
+    public long getChunkLength(int index) {
+        return Math.min(chunkSize, totalSize - (long) index * chunkSize);
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public String getPasskey() { return passkey; }
+    public void setPasskey(String passkey) { this.passkey = passkey; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    public int getChunkCount() { return chunkCount; }
+    public void setChunkCount(int chunkCount) { this.chunkCount = chunkCount; }
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public Date getLastActivityAt() { return lastActivityAt; }
+    public void setLastActivityAt(Date lastActivityAt) { this.lastActivityAt = lastActivityAt; }
+    public boolean isCommitting() { return committing; }
+    public void setCommitting(boolean committing) { this.committing = committing; }
+    public Date getCommitStartedAt() { return commitStartedAt; }
+    public void setCommitStartedAt(Date commitStartedAt) { this.commitStartedAt = commitStartedAt; }
+    public List<Integer> getMissingChunks() { return missingChunks; }
+    public void setMissingChunks(List<Integer> missingChunks) { this.missingChunks = missingChunks; }
+}
@@ -6,6 +6,7 @@ public class FileDTO {
     private String fileType;
     private boolean isFavourite;
     private String groupName;
+    private Long fileSize;
 
     
     public FileDTO() {}
@@ -16,6 +17,22 @@ public class FileDTO {
         this.fileName = fileEntity.getFileName();
         this.fileType = fileEntity.getFileType();
         this.isFavourite = fileEntity.getIsFavourite();
+        this.fileSize = fileEntity.getFileSize();
+    }
+
+    // Used by the JPQL listing projections in FileRepository
+    public FileDTO(Long id, String fileName, String fileType, boolean isFavourite, Long fileSize) {
+        this.id = id;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.isFavourite = isFavourite;
+        this.fileSize = fileSize;
+    }
+
+    // Used by the shared-files query in SharedFileRepository
+    public FileDTO(Long id, String fileName, String fileType, boolean isFavourite, Long fileSize, String groupName) {
+        this(id, fileName, fileType, isFavourite, fileSize);
+        this.groupName = groupName;
     }
 
     
@@ -67,8 +84,16 @@ public class FileDTO {
         this.groupName = groupName;
     }
 
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
     @Override
     public String toString() {
-        return "FileDTO{id=" + id + ", fileName='" + fileName + "', fileType='" + fileType + "', isFavourite=" + isFavourite + ", groupName='" + groupName + "'}";
+        return "FileDTO{id=" + id + ", fileName='" + fileName + "', fileType='" + fileType + "', isFavourite=" + isFavourite + ", groupName='" + groupName + "', fileSize=" + fileSize + "}";
     }
 }
@@ -2,8 +2,10 @@ package com.klef.sdp.model;
 
 import jakarta.persistence.*;
 
+import java.util.Date;
+
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = @Index(name = "idx_files_user_checksum", columnList = "user_id, checksum"))
 public class FileEntity {
 
     @Id
@@ -16,24 +18,36 @@ public class FileEntity {
     @Column(nullable = false, length = 100)
     private String fileType;
 
-    // Explicitly force Hibernate to create LONGBLOB in MySQL
-    @Lob
-    @Column(name = "file_data", columnDefinition = "LONGBLOB", nullable = false)
-    private byte[] fileData;
+    // Key of the content in the BlobStore; the bytes are not kept in MySQL
+    @Column(name = "storage_key", length = 128)
+    private String storageKey;
+
+    @Column(name = "file_size")
+    private Long fileSize;
 
-    @ManyToOne
+    // Hex SHA-256 of the content
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id", nullable = true)
     private Session session; // Associate with session
 
     @Column(name = "is_favourite", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
     private boolean isFavourite;
 
+    // Null for rows created before upload times were recorded
+    @Column(name = "uploaded_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date uploadedAt;
+
     public FileEntity() {
         this.isFavourite = false;
+        this.uploadedAt = new Date();
     }
 
     // ---------------- Getters and Setters ----------------
@@ -59,11 +73,25 @@ public class FileEntity {
         this.fileType = fileType; 
     }
 
-    public byte[] getFileData() { 
-        return fileData; 
+    public String getStorageKey() { 
+        return storageKey; 
+    }
+    public void setStorageKey(String storageKey) { 
+        this.storageKey = storageKey; 
+    }
+
+    public Long getFileSize() { 
+        return fileSize; 
     }
-    public void setFileData(byte[] fileData) { 
-        this.fileData = fileData; 
+    public void setFileSize(Long fileSize) { 
+        this.fileSize = fileSize; 
+    }
+
+    public String getChecksum() { 
+        return checksum; 
+    }
+    public void setChecksum(String checksum) { 
+        this.checksum = checksum; 
     }
 
     public User getUser() { 
@@ -80,6 +108,13 @@ public class FileEntity {
         this.session = session; 
     }
 
+    public Date getUploadedAt() { 
+        return uploadedAt; 
+    }
+    public void setUploadedAt(Date uploadedAt) { 
+        this.uploadedAt = uploadedAt; 
+    }
+
     public boolean getIsFavourite() { 
         return isFavourite; 
     }
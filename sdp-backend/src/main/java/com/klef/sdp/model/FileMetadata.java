@@ -0,0 +1,14 @@
+package com.klef.sdp.model;
+
+import java.util.Date;
+
+// Read-only view of a file row without its user or session associations
+public interface FileMetadata {
+    Long getId();
+    String getFileName();
+    String getFileType();
+    Long getFileSize();
+    String getStorageKey();
+    String getChecksum();
+    Date getUploadedAt();
+}
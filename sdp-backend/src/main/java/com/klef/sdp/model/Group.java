@@ -15,9 +15,8 @@ public class Group {
 
     private String password;
 
-    @ElementCollection
-    @CollectionTable(name = "group_usernames", joinColumns = @JoinColumn(name = "group_id"))
-    @Column(name = "username")
+    // Filled in from group_members by GroupServiceImpl for API responses
+    @Transient
     private List<String> usernames;
 
     // Constructors
@@ -0,0 +1,45 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// One row per (group, user) membership; replaces the group_usernames element collection
+@Entity
+@Table(name = "group_members",
+        uniqueConstraints = @UniqueConstraint(name = "uk_group_members_group_username", columnNames = {"group_id", "username"}),
+        indexes = @Index(name = "idx_group_members_username", columnList = "username"))
+public class GroupMember {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private String groupId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "joined_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date joinedAt;
+
+    public GroupMember() {
+        this.joinedAt = new Date();
+    }
+
+    public GroupMember(String groupId, String username) {
+        this();
+        this.groupId = groupId;
+        this.username = username;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public Date getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(Date joinedAt) { this.joinedAt = joinedAt; }
+}
@@ -4,10 +4,10 @@ import jakarta.persistence.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = @Index(name = "idx_messages_group_id", columnList = "group_id, id"))
 public class Message {
+    // Assigned by MessageIdGenerator before the message is broadcast
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "group_id")
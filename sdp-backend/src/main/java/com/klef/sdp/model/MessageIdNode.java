@@ -0,0 +1,30 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// Lease on one of the node ids embedded in message ids; each running pod holds one
+@Entity
+@Table(name = "message_id_nodes")
+public class MessageIdNode {
+    @Id
+    @Column(name = "node_id")
+    private int nodeId;
+
+    // Instance currently holding the lease, or null when free
+    private String owner;
+
+    @Column(name = "heartbeat_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date heartbeatAt;
+
+    public MessageIdNode() {}
+
+    // Getters and Setters
+    public int getNodeId() { return nodeId; }
+    public void setNodeId(int nodeId) { this.nodeId = nodeId; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Date getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(Date heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+}
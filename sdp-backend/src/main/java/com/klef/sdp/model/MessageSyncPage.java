@@ -0,0 +1,20 @@
+package com.klef.sdp.model;
+
+import java.util.List;
+
+// Messages a reconnecting client missed, plus where its next sync should start
+public class MessageSyncPage {
+    private final List<Message> messages;
+    private final long nextCursor;
+    private final boolean hasMore;
+
+    public MessageSyncPage(List<Message> messages, long nextCursor, boolean hasMore) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<Message> getMessages() { return messages; }
+    public long getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+}
@@ -0,0 +1,48 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// Password reset state for an email, shared by all pods: the pending code (empty
+// when there is none) and the counters that limit guesses and resends per window
+@Entity
+@Table(name = "otp_codes", indexes = @Index(name = "idx_otp_codes_expires_at", columnList = "expires_at"))
+public class OtpCode {
+    @Id
+    private String email;
+
+    @Column(nullable = false, length = 16)
+    private String code;
+
+    @Column(name = "expires_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiresAt;
+
+    // Wrong guesses in the current window, across every code sent in it
+    @Column(nullable = false)
+    private int attempts;
+
+    // Codes sent in the current window
+    @Column(name = "sends")
+    private Integer sends;
+
+    @Column(name = "window_started_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date windowStartedAt;
+
+    public OtpCode() {}
+
+    // Getters and Setters
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public Integer getSends() { return sends; }
+    public void setSends(Integer sends) { this.sends = sends; }
+    public Date getWindowStartedAt() { return windowStartedAt; }
+    public void setWindowStartedAt(Date windowStartedAt) { this.windowStartedAt = windowStartedAt; }
+}
@@ -0,0 +1,63 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// A square, resized copy of a user's profile picture, kept apart from the users row
+@Entity
+@Table(name = "profile_thumbnails",
+        uniqueConstraints = @UniqueConstraint(name = "uk_profile_thumbnails_user_size", columnNames = {"user_id", "size"}))
+public class ProfileThumbnail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    // Width and height in pixels
+    @Column(nullable = false)
+    private int size;
+
+    @Column(name = "content_type", length = 50, nullable = false)
+    private String contentType;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+
+    // SHA-256 of data, used as the ETag
+    @Column(length = 64, nullable = false)
+    private String checksum;
+
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    public ProfileThumbnail() {}
+
+    public ProfileThumbnail(int userId, int size, String contentType, byte[] data, String checksum) {
+        this.userId = userId;
+        this.size = size;
+        this.contentType = contentType;
+        this.data = data;
+        this.checksum = checksum;
+        this.createdAt = new Date();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+}
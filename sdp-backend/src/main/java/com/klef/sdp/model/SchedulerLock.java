@@ -0,0 +1,38 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// Lease on a scheduled job, so that only one pod runs it at a time
+@Entity
+@Table(name = "scheduler_locks")
+public class SchedulerLock {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Database time until which the job is held; free once it has passed
+    @Column(name = "lock_until", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lockUntil;
+
+    @Column(name = "locked_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lockedAt;
+
+    // Instance that last took the lease
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    public SchedulerLock() {}
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public Date getLockUntil() { return lockUntil; }
+    public void setLockUntil(Date lockUntil) { this.lockUntil = lockUntil; }
+    public Date getLockedAt() { return lockedAt; }
+    public void setLockedAt(Date lockedAt) { this.lockedAt = lockedAt; }
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+}
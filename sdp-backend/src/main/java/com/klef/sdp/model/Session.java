@@ -6,7 +6,7 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "sessions")
+@Table(name = "sessions", indexes = @Index(name = "idx_sessions_expires_at", columnList = "expiresAt"))
 public class Session {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,9 +23,8 @@ public class Session {
     @Temporal(TemporalType.TIMESTAMP)
     private Date expiresAt;
 
-    @ElementCollection
-    @CollectionTable(name = "session_usernames", joinColumns = @JoinColumn(name = "session_id"))
-    @Column(name = "username")
+    // Filled in from session_members by SessionServiceImpl for API responses
+    @Transient
     private List<String> usernames = new ArrayList<>();
 
     public Session() {
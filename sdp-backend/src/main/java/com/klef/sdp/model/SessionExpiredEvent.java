@@ -0,0 +1,24 @@
+package com.klef.sdp.model;
+
+import java.util.Date;
+
+// Sent on /topic/session/{passkey} once the session has expired and been deleted
+public class SessionExpiredEvent {
+    private final String type = "session_expired";
+    private String passkey;
+    private Date expiresAt;
+
+    public SessionExpiredEvent() {}
+
+    public SessionExpiredEvent(String passkey, Date expiresAt) {
+        this.passkey = passkey;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and setters
+    public String getType() { return type; }
+    public String getPasskey() { return passkey; }
+    public void setPasskey(String passkey) { this.passkey = passkey; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
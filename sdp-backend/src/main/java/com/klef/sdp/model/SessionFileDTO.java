@@ -0,0 +1,76 @@
+package com.klef.sdp.model;
+
+// Metadata for one file in a share session; the content is fetched from downloadUrl
+public class SessionFileDTO {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private Long size;
+    private String uploadedBy;
+    private String downloadUrl;
+
+    public SessionFileDTO() {}
+
+    // Used by the JPQL projection in FileRepository
+    public SessionFileDTO(Long id, String fileName, String fileType, Long size, String uploadedBy) {
+        this.id = id;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.size = size;
+        this.uploadedBy = uploadedBy;
+        this.downloadUrl = "/api/file/download/" + id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public void setDownloadUrl(String downloadUrl) {
+        this.downloadUrl = downloadUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionFileDTO{id=" + id + ", fileName='" + fileName + "', fileType='" + fileType + "', size=" + size + ", uploadedBy='" + uploadedBy + "'}";
+    }
+}
@@ -0,0 +1,45 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// One row per (session, user) membership; replaces the session_usernames element collection
+@Entity
+@Table(name = "session_members",
+        uniqueConstraints = @UniqueConstraint(name = "uk_session_members_session_username", columnNames = {"session_id", "username"}),
+        indexes = @Index(name = "idx_session_members_username", columnList = "username"))
+public class SessionMember {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "joined_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date joinedAt;
+
+    public SessionMember() {
+        this.joinedAt = new Date();
+    }
+
+    public SessionMember(Long sessionId, String username) {
+        this();
+        this.sessionId = sessionId;
+        this.username = username;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getSessionId() { return sessionId; }
+    public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public Date getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(Date joinedAt) { this.joinedAt = joinedAt; }
+}
@@ -0,0 +1,55 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// Links a file message in a group to the shared file, so shared-file listings don't scan messages
+@Entity
+@Table(name = "shared_files", indexes = {
+        @Index(name = "idx_shared_files_group", columnList = "group_id, id"),
+        @Index(name = "idx_shared_files_file", columnList = "file_id")
+})
+public class SharedFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The file message this link was created from
+    @Column(name = "message_id", nullable = false, unique = true)
+    private Long messageId;
+
+    @Column(name = "group_id", nullable = false)
+    private String groupId;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "shared_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date sharedAt;
+
+    @Column(name = "sender_username")
+    private String senderUsername;
+
+    // True when the message limited the file to its recipients (visibility "selected").
+    // Null on links made before visibility was recorded; they stay hidden until re-indexed
+    private Boolean restricted;
+
+    public SharedFile() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public Long getFileId() { return fileId; }
+    public void setFileId(Long fileId) { this.fileId = fileId; }
+    public Date getSharedAt() { return sharedAt; }
+    public void setSharedAt(Date sharedAt) { this.sharedAt = sharedAt; }
+    public String getSenderUsername() { return senderUsername; }
+    public void setSenderUsername(String senderUsername) { this.senderUsername = senderUsername; }
+    public Boolean getRestricted() { return restricted; }
+    public void setRestricted(Boolean restricted) { this.restricted = restricted; }
+}
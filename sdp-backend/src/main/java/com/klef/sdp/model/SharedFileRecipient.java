@@ -0,0 +1,29 @@
+package com.klef.sdp.model;
+
+import jakarta.persistence.*;
+
+// A user a restricted file message was shared with ("visibleTo" in the message)
+@Entity
+@Table(name = "shared_file_recipients",
+        uniqueConstraints = @UniqueConstraint(name = "uk_shared_file_recipients_message_username", columnNames = {"message_id", "username"}))
+public class SharedFileRecipient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(nullable = false)
+    private String username;
+
+    public SharedFileRecipient() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+}
@@ -0,0 +1,34 @@
+package com.klef.sdp.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes to who is typing in a group, sent instead of one frame per keystroke.
+ * Each pod only reports the users whose events it handled, so clients merge
+ * updates: everyone in typing is added or refreshed and stays until the given
+ * number of milliseconds passes without another update, everyone in stopped
+ * is removed.
+ */
+public class TypingUpdate {
+    private String groupId;
+    // username -> ms until the user stops showing as typing unless refreshed
+    private Map<String, Long> typing;
+    private List<String> stopped;
+
+    public TypingUpdate() {}
+
+    public TypingUpdate(String groupId, Map<String, Long> typing, List<String> stopped) {
+        this.groupId = groupId;
+        this.typing = typing;
+        this.stopped = stopped;
+    }
+
+    // Getters and setters
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public Map<String, Long> getTyping() { return typing; }
+    public void setTyping(Map<String, Long> typing) { this.typing = typing; }
+    public List<String> getStopped() { return stopped; }
+    public void setStopped(List<String> stopped) { this.stopped = stopped; }
+}
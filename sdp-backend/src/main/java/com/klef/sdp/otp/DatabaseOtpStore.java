@@ -0,0 +1,106 @@
+package com.klef.sdp.otp;
+
+import com.klef.sdp.config.ScheduledJobLock;
+import com.klef.sdp.model.OtpCode;
+import com.klef.sdp.repository.OtpCodeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+
+/**
+ * Codes kept in the otp_codes table, so a reset started on one pod can be
+ * finished on any other. The row outlives each code so its counters carry
+ * over to the next one. Sending and verifying lock the email's row, which
+ * keeps concurrent guesses from sharing an attempt.
+ */
+@Component
+@ConditionalOnProperty(name = "sdp.otp.store", havingValue = "database", matchIfMissing = true)
+public class DatabaseOtpStore implements OtpStore {
+    @Autowired
+    private OtpCodeRepository otpCodeRepository;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Value("${sdp.otp.max-sends:5}")
+    private int maxSends;
+
+    @Value("${sdp.otp.limit-window-minutes:60}")
+    private int limitWindowMinutes;
+
+    @Override
+    @Transactional
+    public void save(String email, String otp, Date expiresAt) {
+        Date now = new Date();
+        otpCodeRepository.register(email, now);
+        OtpCode state = otpCodeRepository.findByEmailForUpdate(email);
+        startWindowIfOver(state, now);
+        if (state.getSends() >= maxSends) {
+            throw new IllegalStateException("Too many codes requested for this email, please try again later");
+        }
+        state.setCode(otp);
+        state.setExpiresAt(expiresAt);
+        state.setSends(state.getSends() + 1);
+    }
+
+    @Override
+    @Transactional
+    public OtpVerification verify(String email, String otp, int maxAttempts) {
+        OtpCode state = otpCodeRepository.findByEmailForUpdate(email);
+        if (state == null || state.getCode().isEmpty()) {
+            return OtpVerification.MISSING;
+        }
+        Date now = new Date();
+        startWindowIfOver(state, now);
+        if (state.getAttempts() >= maxAttempts) {
+            state.setCode("");
+            return OtpVerification.TOO_MANY_ATTEMPTS;
+        }
+        if (state.getExpiresAt().before(now)) {
+            state.setCode("");
+            return OtpVerification.EXPIRED;
+        }
+        if (MessageDigest.isEqual(state.getCode().getBytes(StandardCharsets.UTF_8), otp.getBytes(StandardCharsets.UTF_8))) {
+            // Keep the row so the send and attempt counters hold for the rest of the window
+            state.setCode("");
+            state.setExpiresAt(now);
+            return OtpVerification.VALID;
+        }
+        state.setAttempts(state.getAttempts() + 1);
+        if (state.getAttempts() >= maxAttempts) {
+            state.setCode("");
+            return OtpVerification.TOO_MANY_ATTEMPTS;
+        }
+        return OtpVerification.INVALID;
+    }
+
+    @Override
+    public void remove(String email) {
+        otpCodeRepository.deleteById(email);
+    }
+
+    @Scheduled(fixedDelay = 600000) // Run every ten minutes
+    public void purgeExpired() {
+        scheduledJobLock.runExclusively("otp-purge", 600000, 540000, () -> {
+            Date now = new Date();
+            otpCodeRepository.deleteExpired(now, new Date(now.getTime() - limitWindowMinutes * 60000L));
+        });
+    }
+
+    // Counters start over once the window has passed (rows from before the window have none)
+    private void startWindowIfOver(OtpCode state, Date now) {
+        if (state.getWindowStartedAt() == null
+                || state.getWindowStartedAt().getTime() + limitWindowMinutes * 60000L <= now.getTime()) {
+            state.setAttempts(0);
+            state.setSends(0);
+            state.setWindowStartedAt(now);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.klef.sdp.otp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Codes kept on this pod only, for a single instance or local development.
+ * An email's entry (its pending code plus the guess and send counters) lives
+ * until both the code and the limit window have run out. Each email is also
+ * filed under the minute its entry runs out in, so the sweep drops whole
+ * expired buckets without scanning live entries. The number of entries is
+ * capped by sdp.otp.max-entries; beyond it new resets are refused until
+ * entries expire, rather than growing the heap.
+ */
+@Component
+@ConditionalOnProperty(name = "sdp.otp.store", havingValue = "memory")
+public class InMemoryOtpStore implements OtpStore {
+    private static final long BUCKET_MS = 60000;
+
+    @Value("${sdp.otp.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${sdp.otp.max-sends:5}")
+    private int maxSends;
+
+    @Value("${sdp.otp.limit-window-minutes:60}")
+    private int limitWindowMinutes;
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    // Bucket start (end of the entry rounded down to BUCKET_MS) -> emails whose entries end in it
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    private static final class Entry {
+        // Null when no code is pending
+        final String otp;
+        final long expiresAt;
+        final int attempts;
+        final int sends;
+        final long windowStartedAt;
+
+        Entry(String otp, long expiresAt, int attempts, int sends, long windowStartedAt) {
+            this.otp = otp;
+            this.expiresAt = expiresAt;
+            this.attempts = attempts;
+            this.sends = sends;
+            this.windowStartedAt = windowStartedAt;
+        }
+
+        Entry withoutCode(int attempts) {
+            return new Entry(null, expiresAt, attempts, sends, windowStartedAt);
+        }
+    }
+
+    @Override
+    public void save(String email, String otp, Date expiresAt) {
+        if (codes.size() >= maxEntries && !codes.containsKey(email)) {
+            purgeExpired();
+            if (codes.size() >= maxEntries) {
+                throw new IllegalStateException("Too many password resets in progress, please try again later");
+            }
+        }
+        long now = System.currentTimeMillis();
+        boolean[] refused = {false};
+        Entry saved = codes.compute(email, (key, entry) -> {
+            Entry current = inWindow(entry, now);
+            if (current.sends >= maxSends) {
+                refused[0] = true;
+                return current;
+            }
+            return new Entry(otp, expiresAt.getTime(), current.attempts, current.sends + 1, current.windowStartedAt);
+        });
+        file(email, saved);
+        if (refused[0]) {
+            throw new IllegalStateException("Too many codes requested for this email, please try again later");
+        }
+    }
+
+    @Override
+    public OtpVerification verify(String email, String otp, int maxAttempts) {
+        OtpVerification[] result = {OtpVerification.MISSING};
+        long now = System.currentTimeMillis();
+        // compute runs atomically per email, so concurrent guesses each use up an attempt
+        Entry updated = codes.computeIfPresent(email, (key, entry) -> {
+            if (entry.otp == null) {
+                return entry;
+            }
+            Entry current = inWindow(entry, now);
+            if (current.attempts >= maxAttempts) {
+                result[0] = OtpVerification.TOO_MANY_ATTEMPTS;
+                return current.withoutCode(current.attempts);
+            }
+            if (current.expiresAt < now) {
+                result[0] = OtpVerification.EXPIRED;
+                return current.withoutCode(current.attempts);
+            }
+            if (MessageDigest.isEqual(current.otp.getBytes(StandardCharsets.UTF_8), otp.getBytes(StandardCharsets.UTF_8))) {
+                result[0] = OtpVerification.VALID;
+                // The counters still apply to the rest of the window
+                return current.withoutCode(current.attempts);
+            }
+            if (current.attempts + 1 >= maxAttempts) {
+                result[0] = OtpVerification.TOO_MANY_ATTEMPTS;
+                return current.withoutCode(current.attempts + 1);
+            }
+            result[0] = OtpVerification.INVALID;
+            return new Entry(current.otp, current.expiresAt, current.attempts + 1, current.sends, current.windowStartedAt);
+        });
+        if (updated != null) {
+            file(email, updated);
+        }
+        return result[0];
+    }
+
+    @Override
+    public void remove(String email) {
+        codes.remove(email);
+    }
+
+    // An email can sit in an old bucket after its entry was extended; only entries that really ran out are removed
+    @Scheduled(fixedDelay = BUCKET_MS)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Map<Long, Set<String>> expired = buckets.headMap(now / BUCKET_MS * BUCKET_MS);
+        for (Long bucket : expired.keySet()) {
+            Set<String> emails = buckets.remove(bucket);
+            if (emails == null) {
+                continue;
+            }
+            for (String email : emails) {
+                codes.computeIfPresent(email, (key, entry) -> endOf(entry) < now ? null : entry);
+            }
+        }
+    }
+
+    // Counters start over once the window has passed
+    private Entry inWindow(Entry entry, long now) {
+        if (entry == null) {
+            return new Entry(null, 0, 0, 0, now);
+        }
+        if (entry.windowStartedAt + limitWindowMinutes * 60000L <= now) {
+            return new Entry(entry.otp, entry.expiresAt, 0, 0, now);
+        }
+        return entry;
+    }
+
+    private long endOf(Entry entry) {
+        return Math.max(entry.expiresAt, entry.windowStartedAt + limitWindowMinutes * 60000L);
+    }
+
+    private void file(String email, Entry entry) {
+        long end = endOf(entry);
+        buckets.computeIfAbsent(end / BUCKET_MS * BUCKET_MS, bucket -> ConcurrentHashMap.newKeySet()).add(email);
+    }
+}
@@ -0,0 +1,20 @@
+package com.klef.sdp.otp;
+
+import java.util.Date;
+
+/**
+ * One-time codes for password resets, at most one pending code per email.
+ * Wrong guesses are counted per email rather than per code: once maxAttempts
+ * are used within the limit window (sdp.otp.limit-window-minutes) no code is
+ * accepted until it ends, and at most sdp.otp.max-sends codes are sent in it,
+ * so resending can't buy more guesses at a 6-digit code.
+ */
+public interface OtpStore {
+    // Replaces any code pending for the email; IllegalStateException when the email's sends are used up
+    void save(String email, String otp, Date expiresAt);
+
+    // Checks and, when it matches, consumes the pending code in one step
+    OtpVerification verify(String email, String otp, int maxAttempts);
+
+    void remove(String email);
+}
@@ -0,0 +1,13 @@
+package com.klef.sdp.otp;
+
+// Outcome of checking a code against an OtpStore
+public enum OtpVerification {
+    // Matched; the code has been used up
+    VALID,
+    // Wrong code; it counts as a failed attempt
+    INVALID,
+    // Wrong guesses used up for this window; the code is gone and new ones are refused until it ends
+    TOO_MANY_ATTEMPTS,
+    EXPIRED,
+    MISSING
+}
@@ -0,0 +1,24 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.BackfillProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface BackfillProgressRepository extends JpaRepository<BackfillProgress, String> {
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO backfill_progress (name, last_id) VALUES (:name, 0)", nativeQuery = true)
+    int register(String name);
+
+    @Query("SELECT p.lastId FROM BackfillProgress p WHERE p.name = :name")
+    Long findLastId(String name);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BackfillProgress p SET p.lastId = :lastId WHERE p.name = :name AND p.lastId < :lastId")
+    int advance(String name, long lastId);
+}
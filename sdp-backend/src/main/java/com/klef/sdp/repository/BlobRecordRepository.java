@@ -0,0 +1,62 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.BlobRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface BlobRecordRepository extends JpaRepository<BlobRecord, String> {
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO blobs (checksum, storage_key, file_size, ref_count, created_at) " +
+            "VALUES (:checksum, :storageKey, :fileSize, 1, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, released_at = NULL", nativeQuery = true)
+    int acquire(String checksum, String storageKey, long fileSize);
+
+    // released_at is assigned first: MySQL evaluates SET clauses left to right
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE blobs SET released_at = CASE WHEN ref_count <= 1 THEN CURRENT_TIMESTAMP ELSE NULL END, " +
+            "ref_count = ref_count - 1 WHERE checksum = :checksum AND ref_count > 0", nativeQuery = true)
+    int release(String checksum);
+
+    // Same as release, for several references at once
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE blobs SET released_at = CASE WHEN ref_count <= :count THEN CURRENT_TIMESTAMP ELSE NULL END, " +
+            "ref_count = GREATEST(ref_count - :count, 0) WHERE checksum = :checksum AND ref_count > 0", nativeQuery = true)
+    int releaseMany(String checksum, long count);
+
+    @Query("SELECT b FROM BlobRecord b WHERE b.refCount = 0 AND b.releasedAt < :cutoff ORDER BY b.releasedAt")
+    List<BlobRecord> findReleasedBefore(Date cutoff, Pageable pageable);
+
+    // Content written to the store that ended up unreferenced; collected after the grace period
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO blobs (checksum, storage_key, file_size, ref_count, created_at, released_at) " +
+            "VALUES (:checksum, :storageKey, :fileSize, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE checksum = checksum", nativeQuery = true)
+    int registerReleased(String checksum, String storageKey, long fileSize);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM blobs WHERE checksum = :checksum AND ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(String checksum);
+
+    // Registers content stored before reference counting existed
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO blobs (checksum, storage_key, file_size, ref_count, created_at) " +
+            "SELECT f.checksum, MIN(f.storage_key), MIN(f.file_size), COUNT(*), CURRENT_TIMESTAMP FROM files f " +
+            "WHERE f.storage_key IS NOT NULL AND f.checksum IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM blobs b WHERE b.checksum = f.checksum) GROUP BY f.checksum",
+            nativeQuery = true)
+    int registerUntrackedBlobs();
+}
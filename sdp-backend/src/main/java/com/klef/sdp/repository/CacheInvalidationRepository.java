@@ -0,0 +1,31 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.CacheInvalidation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+    // Joins the caller's transaction, so other pods only see it once the change is committed
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO cache_invalidations (cache_name, cache_key, created_at) " +
+            "VALUES (:cacheName, :cacheKey, LOCALTIMESTAMP(3))", nativeQuery = true)
+    int record(String cacheName, String cacheKey);
+
+    @Query(value = "SELECT LOCALTIMESTAMP(3)", nativeQuery = true)
+    Date databaseNow();
+
+    List<CacheInvalidation> findByCreatedAtAfter(Date since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CacheInvalidation c WHERE c.createdAt < :cutoff")
+    int deleteOlderThan(Date cutoff);
+}
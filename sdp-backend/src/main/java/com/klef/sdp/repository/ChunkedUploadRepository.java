@@ -0,0 +1,45 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.ChunkedUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ChunkedUploadRepository extends JpaRepository<ChunkedUpload, String> {
+    @Query("SELECT u.id FROM ChunkedUpload u WHERE u.lastActivityAt < :inactiveSince " +
+            "OR (u.lastActivityAt IS NULL AND u.createdAt < :inactiveSince)")
+    List<String> findInactiveIds(Date inactiveSince);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChunkedUpload u SET u.lastActivityAt = :now WHERE u.id = :id")
+    int touch(String id, Date now);
+
+    // Returns 1 only for the request that gets to assemble the upload; a claim older than
+    // claimExpiredBefore (or from before claims were timed) belongs to a commit that died
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChunkedUpload u SET u.committing = true, u.commitStartedAt = :now WHERE u.id = :id " +
+            "AND (u.committing = false OR u.commitStartedAt IS NULL OR u.commitStartedAt < :claimExpiredBefore)")
+    int claimForCommit(String id, Date now, Date claimExpiredBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChunkedUpload u SET u.committing = false, u.commitStartedAt = NULL WHERE u.id = :id")
+    int releaseCommitClaim(String id);
+
+    // Deletes the upload only if it is still inactive and not being committed, so a chunk
+    // or commit arriving after it was selected wins over the purge
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChunkedUpload u WHERE u.id = :id " +
+            "AND (u.lastActivityAt < :inactiveSince OR (u.lastActivityAt IS NULL AND u.createdAt < :inactiveSince)) " +
+            "AND (u.committing = false OR u.commitStartedAt IS NULL OR u.commitStartedAt < :claimExpiredBefore)")
+    int deleteIfAbandoned(String id, Date inactiveSince, Date claimExpiredBefore);
+}
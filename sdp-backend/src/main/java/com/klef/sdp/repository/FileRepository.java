@@ -1,14 +1,68 @@
 package com.klef.sdp.repository;
 
+import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.model.FileMetadata;
+import com.klef.sdp.model.SessionFileDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FileRepository extends JpaRepository<FileEntity, Long> {
-    List<FileEntity> findByUserId(int userId);
-    List<FileEntity> findByUserIdAndIsFavouriteTrue(int userId);
     List<FileEntity> findBySessionId(Long sessionId);
-}
\ No newline at end of file
+
+    // Blob references held by the files of these sessions: checksum -> number of rows
+    @Query("SELECT f.checksum, COUNT(f) FROM FileEntity f WHERE f.session.id IN :sessionIds " +
+            "AND f.checksum IS NOT NULL GROUP BY f.checksum")
+    List<Object[]> countChecksumsBySessionIds(Collection<Long> sessionIds);
+
+    @Modifying
+    @Query("DELETE FROM FileEntity f WHERE f.session.id IN :sessionIds")
+    int deleteBySessionIds(Collection<Long> sessionIds);
+    boolean existsByUserIdAndChecksumAndFileNameAndFileType(int userId, String checksum, String fileName, String fileType);
+
+    // Listing projections: only metadata columns, no user/session joins
+    @Query("SELECT new com.klef.sdp.model.FileDTO(f.id, f.fileName, f.fileType, f.isFavourite, f.fileSize) " +
+            "FROM FileEntity f WHERE f.user.id = :userId ORDER BY f.id")
+    List<FileDTO> findSummariesByUserId(int userId);
+
+    @Query("SELECT new com.klef.sdp.model.FileDTO(f.id, f.fileName, f.fileType, f.isFavourite, f.fileSize) " +
+            "FROM FileEntity f WHERE f.user.id = :userId AND f.isFavourite = true ORDER BY f.id")
+    List<FileDTO> findFavouriteSummariesByUserId(int userId);
+
+    // Keyset page of a session's files; pass afterId = 0 for the first page
+    @Query("SELECT new com.klef.sdp.model.SessionFileDTO(f.id, f.fileName, f.fileType, f.fileSize, u.username) " +
+            "FROM FileEntity f JOIN f.user u WHERE f.session.id = :sessionId AND f.id > :afterId ORDER BY f.id")
+    List<SessionFileDTO> findSessionFilesAfter(Long sessionId, Long afterId, Pageable pageable);
+
+    @Query("SELECT f.id AS id, f.fileName AS fileName, f.fileType AS fileType, f.fileSize AS fileSize, " +
+            "f.storageKey AS storageKey, f.checksum AS checksum, f.uploadedAt AS uploadedAt FROM FileEntity f WHERE f.id = :id")
+    Optional<FileMetadata> findMetadataById(Long id);
+
+    // ---- Rows uploaded before the blob store still carry their bytes in files.file_data ----
+
+    @Query(value = "SELECT id FROM files WHERE storage_key IS NULL AND file_data IS NOT NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findLegacyFileIds(int limit);
+
+    @Query(value = "SELECT LENGTH(file_data) FROM files WHERE id = :id", nativeQuery = true)
+    Long findLegacyFileDataLength(Long id);
+
+    // position is 1-based, as in SQL SUBSTRING
+    @Query(value = "SELECT SUBSTRING(file_data, :position, :length) FROM files WHERE id = :id", nativeQuery = true)
+    byte[] findFileDataChunk(Long id, long position, int length);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE files SET storage_key = :storageKey, file_size = :fileSize, checksum = :checksum, " +
+            "file_data = NULL WHERE id = :id AND storage_key IS NULL", nativeQuery = true)
+    int moveLegacyFileData(Long id, String storageKey, long fileSize, String checksum);
+}
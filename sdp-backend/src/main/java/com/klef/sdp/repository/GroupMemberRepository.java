@@ -0,0 +1,43 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.GroupMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupMemberRepository extends JpaRepository<GroupMember, Long> {
+    boolean existsByGroupIdAndUsername(String groupId, String username);
+
+    List<GroupMember> findByGroupIdIn(Collection<String> groupIds);
+
+    @Query("SELECT m.groupId FROM GroupMember m WHERE m.username = :username")
+    List<String> findGroupIdsByUsername(String username);
+
+    @Query("SELECT m.username FROM GroupMember m WHERE m.groupId = :groupId")
+    List<String> findUsernamesByGroupId(String groupId);
+
+    long countByGroupId(String groupId);
+
+    // Returns 0 when the user was already a member; the unique key makes concurrent joins safe
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO group_members (group_id, username, joined_at) " +
+            "VALUES (:groupId, :username, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int addMember(String groupId, String username);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM GroupMember m WHERE m.groupId = :groupId AND m.username = :username")
+    int removeMember(String groupId, String username);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM GroupMember m WHERE m.groupId = :groupId")
+    int removeAllMembers(String groupId);
+}
@@ -1,14 +1,23 @@
 package com.klef.sdp.repository;
 
 import com.klef.sdp.model.Group;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GroupRepository extends JpaRepository<Group, String> {
-    @Query("SELECT g FROM Group g WHERE :username MEMBER OF g.usernames")
-    List<Group> findByUsernamesContaining(String username);
+    // Joins take a shared lock on the group row and leaves an exclusive one, so a join
+    // can't slip in between the last member leaving and the empty group being deleted
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT g FROM Group g WHERE g.id = :id")
+    Optional<Group> findByIdForShare(String id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM Group g WHERE g.id = :id")
+    Optional<Group> findByIdForUpdate(String id);
 }
\ No newline at end of file
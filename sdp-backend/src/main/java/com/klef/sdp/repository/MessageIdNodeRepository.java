@@ -0,0 +1,36 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.MessageIdNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MessageIdNodeRepository extends JpaRepository<MessageIdNode, Integer> {
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO message_id_nodes (node_id) VALUES (:nodeId)", nativeQuery = true)
+    int register(int nodeId);
+
+    // Takes the lease if it is free or its holder stopped heartbeating; 1 when claimed.
+    // Lease times are database time so pods with skewed clocks agree on expiry
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE message_id_nodes SET owner = :owner, heartbeat_at = LOCALTIMESTAMP(3) " +
+            "WHERE node_id = :nodeId AND (owner IS NULL " +
+            "OR heartbeat_at < TIMESTAMPADD(SECOND, -:expirySeconds, LOCALTIMESTAMP(3)))", nativeQuery = true)
+    int claim(int nodeId, String owner, long expirySeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE message_id_nodes SET heartbeat_at = LOCALTIMESTAMP(3) " +
+            "WHERE node_id = :nodeId AND owner = :owner", nativeQuery = true)
+    int heartbeat(int nodeId, String owner);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MessageIdNode n SET n.owner = NULL WHERE n.nodeId = :nodeId AND n.owner = :owner")
+    int release(int nodeId, String owner);
+}
@@ -1,12 +1,25 @@
 package com.klef.sdp.repository;
 
 import com.klef.sdp.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByGroupId(String groupId); 
+    // Keyset pages over idx_messages_group_id (group_id, id); cost is independent of history length
+    List<Message> findByGroupIdOrderByIdAsc(String groupId);
+    List<Message> findByGroupIdOrderByIdDesc(String groupId, Pageable pageable);
+    List<Message> findByGroupIdAndIdLessThanOrderByIdDesc(String groupId, Long id, Pageable pageable);
+    List<Message> findByGroupIdAndIdGreaterThanOrderByIdAsc(String groupId, Long id, Pageable pageable);
+
+    // Everything newer than the cursor in every group the user belongs to, in one query
+    @Query("SELECT m FROM Message m WHERE m.id > :sinceId AND m.groupId IN " +
+            "(SELECT gm.groupId FROM GroupMember gm WHERE gm.username = :username) ORDER BY m.id ASC")
+    List<Message> findForMemberSince(String username, Long sinceId, Pageable pageable);
+
+    List<Message> findByTypeAndIdGreaterThanOrderByIdAsc(String type, Long id, Pageable pageable);
 }
@@ -0,0 +1,33 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.OtpCode;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface OtpCodeRepository extends JpaRepository<OtpCode, String> {
+    // Creates the email's row with no code, so it can be locked before the first send
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO otp_codes (email, code, expires_at, attempts, sends, window_started_at) " +
+            "VALUES (:email, '', :now, 0, 0, :now)", nativeQuery = true)
+    int register(String email, Date now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OtpCode o WHERE o.email = :email")
+    OtpCode findByEmailForUpdate(String email);
+
+    @Transactional
+    @Modifying
+    // Rows whose code and limit window have both run out
+    @Query("DELETE FROM OtpCode o WHERE o.expiresAt < :now " +
+            "AND (o.windowStartedAt IS NULL OR o.windowStartedAt < :windowStartedBefore)")
+    int deleteExpired(Date now, Date windowStartedBefore);
+}
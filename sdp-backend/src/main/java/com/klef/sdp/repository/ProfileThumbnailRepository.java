@@ -0,0 +1,20 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.ProfileThumbnail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ProfileThumbnailRepository extends JpaRepository<ProfileThumbnail, Long> {
+    Optional<ProfileThumbnail> findByUserIdAndSize(int userId, int size);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProfileThumbnail t WHERE t.userId = :userId")
+    int deleteByUserId(int userId);
+}
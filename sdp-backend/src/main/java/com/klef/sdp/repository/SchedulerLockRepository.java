@@ -0,0 +1,34 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// All times are database time, so pods with skewed clocks agree on when a lease ends
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_locks (name, lock_until, locked_at, locked_by) " +
+            "VALUES (:name, LOCALTIMESTAMP(3), LOCALTIMESTAMP(3), '')", nativeQuery = true)
+    int register(String name);
+
+    // Takes the lease if it has run out; 1 when acquired
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_locks SET lock_until = TIMESTAMPADD(SECOND, :lockAtMostSeconds, LOCALTIMESTAMP(3)), " +
+            "locked_at = LOCALTIMESTAMP(3), locked_by = :owner " +
+            "WHERE name = :name AND lock_until <= LOCALTIMESTAMP(3)", nativeQuery = true)
+    int acquire(String name, String owner, long lockAtMostSeconds);
+
+    // Ends the lease, but not before lockAtLeastSeconds after it was taken
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_locks SET lock_until = " +
+            "GREATEST(LOCALTIMESTAMP(3), TIMESTAMPADD(SECOND, :lockAtLeastSeconds, locked_at)) " +
+            "WHERE name = :name AND locked_by = :owner", nativeQuery = true)
+    int release(String name, String owner, long lockAtLeastSeconds);
+}
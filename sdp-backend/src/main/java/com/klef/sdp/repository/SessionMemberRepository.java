@@ -0,0 +1,33 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.SessionMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SessionMemberRepository extends JpaRepository<SessionMember, Long> {
+    @Query("SELECT m.username FROM SessionMember m WHERE m.sessionId = :sessionId ORDER BY m.id")
+    List<String> findUsernamesBySessionId(Long sessionId);
+
+    // Returns 0 when the user was already a member; the unique key makes concurrent joins safe
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO session_members (session_id, username, joined_at) " +
+            "VALUES (:sessionId, :username, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int addMember(Long sessionId, String username);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SessionMember m WHERE m.sessionId = :sessionId")
+    int removeAllMembers(Long sessionId);
+
+    @Modifying
+    @Query("DELETE FROM SessionMember m WHERE m.sessionId IN :sessionIds")
+    int removeMembersOfSessions(Collection<Long> sessionIds);
+}
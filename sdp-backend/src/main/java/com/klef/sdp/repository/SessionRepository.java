@@ -1,10 +1,45 @@
 package com.klef.sdp.repository;
 
+import com.klef.sdp.model.ActiveSession;
 import com.klef.sdp.model.Session;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 @Repository
 public interface SessionRepository extends JpaRepository<Session, Long> {
     Session findByPasskey(String passkey);
+
+    @Query("SELECT new com.klef.sdp.model.ActiveSession(s.id, s.expiresAt) FROM Session s WHERE s.passkey = :passkey")
+    ActiveSession findActiveSessionByPasskey(String passkey);
+
+    // Shared lock: concurrent joins proceed together, but not alongside the session's deletion
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM Session s WHERE s.passkey = :passkey")
+    Session findByPasskeyForShare(String passkey);
+
+    // (id, expiresAt) of sessions still running, to rebuild the expiry wheel
+    @Query("SELECT s.id, s.expiresAt FROM Session s WHERE s.expiresAt >= :now")
+    List<Object[]> findExpiriesAfter(Date now);
+
+    // Range scan on idx_sessions_expires_at, oldest first
+    @Query("SELECT s.id FROM Session s WHERE s.expiresAt < :now ORDER BY s.expiresAt")
+    List<Long> findExpiredIds(Date now, Pageable pageable);
+
+    // Exclusive lock so uploads and joins into these sessions finish before (or fail after) the reaper
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Session s WHERE s.id IN :ids AND s.expiresAt < :now")
+    List<Session> lockExpired(Collection<Long> ids, Date now);
+
+    @Modifying
+    @Query("DELETE FROM Session s WHERE s.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.klef.sdp.repository;
+
+import com.klef.sdp.model.FileDTO;
+import com.klef.sdp.model.SharedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface SharedFileRepository extends JpaRepository<SharedFile, Long> {
+    // Files shared in any of the user's groups that the user may see, newest first, with
+    // metadata and group name in one query. Restricted files only reach their sender and recipients
+    @Query("SELECT new com.klef.sdp.model.FileDTO(f.id, f.fileName, f.fileType, f.isFavourite, f.fileSize, g.name) " +
+            "FROM GroupMember m JOIN SharedFile s ON s.groupId = m.groupId " +
+            "JOIN Group g ON g.id = s.groupId JOIN FileEntity f ON f.id = s.fileId " +
+            "WHERE m.username = :username AND (s.restricted = false OR s.senderUsername = :username " +
+            "OR EXISTS (SELECT r.id FROM SharedFileRecipient r WHERE r.messageId = s.messageId AND r.username = :username)) " +
+            "ORDER BY s.id DESC")
+    List<FileDTO> findSharedWithUsername(String username);
+
+    // Idempotent on message_id, so the backfill and live inserts can overlap; a repeat refreshes the visibility
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO shared_files (message_id, group_id, file_id, shared_at, sender_username, restricted) " +
+            "VALUES (:messageId, :groupId, :fileId, :sharedAt, :senderUsername, :restricted) " +
+            "ON DUPLICATE KEY UPDATE sender_username = VALUES(sender_username), restricted = VALUES(restricted)", nativeQuery = true)
+    int link(Long messageId, String groupId, Long fileId, Date sharedAt, String senderUsername, boolean restricted);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO shared_file_recipients (message_id, username) VALUES (:messageId, :username)", nativeQuery = true)
+    int addRecipient(Long messageId, String username);
+}
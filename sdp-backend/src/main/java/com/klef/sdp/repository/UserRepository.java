@@ -2,10 +2,18 @@ package com.klef.sdp.repository;
 
 import com.klef.sdp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     User findByUsername(String username);
     User findByEmail(String email);
+
+    // Avoids loading the profile picture when only the id is needed
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Integer findIdByUsername(String username);
+
+    @Query("SELECT u.profilePicture FROM User u WHERE u.id = :id")
+    byte[] findProfilePictureById(int id);
 }
\ No newline at end of file
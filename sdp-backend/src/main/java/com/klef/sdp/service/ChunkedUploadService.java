@@ -0,0 +1,17 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.ChunkedUpload;
+import com.klef.sdp.model.FileEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+public interface ChunkedUploadService {
+    ChunkedUpload init(int userId, String passkey, String fileName, String fileType, long totalSize, Integer chunkSize, String checksum);
+    ChunkedUpload getStatus(String uploadId);
+    void putChunk(String uploadId, int index, InputStream in) throws IOException;
+    FileEntity commit(String uploadId) throws IOException;
+    void abort(String uploadId) throws IOException;
+    int purgeStale(Date inactiveSince);
+}
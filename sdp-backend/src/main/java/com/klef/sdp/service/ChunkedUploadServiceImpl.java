@@ -0,0 +1,191 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.ChunkedUpload;
+import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.repository.ChunkedUploadRepository;
+import com.klef.sdp.repository.UserRepository;
+import com.klef.sdp.storage.BlobRegistry;
+import com.klef.sdp.storage.BlobStore;
+import com.klef.sdp.storage.ChunkStagingArea;
+import com.klef.sdp.storage.StoredBlob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Resumable uploads: the client declares the file, PUTs fixed-size chunks by
+ * index (in any order, in parallel, retrying only the ones that failed) and
+ * then commits. Commit streams the staged chunks into the BlobStore in one
+ * pass, so the file is never held in memory or in a single request. If the
+ * client declared a SHA-256 on init, the assembled file must match it.
+ */
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    @Autowired
+    private ChunkedUploadRepository chunkedUploadRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChunkStagingArea stagingArea;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    // A commit claim older than this is taken to belong to a pod that died mid-commit
+    @Value("${sdp.upload.commit-timeout-minutes:30}")
+    private long commitTimeoutMinutes;
+
+    @Override
+    public ChunkedUpload init(int userId, String passkey, String fileName, String fileType, long totalSize, Integer chunkSize, String checksum) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new RuntimeException("File name is required");
+        }
+        if (totalSize < 0) {
+            throw new RuntimeException("Invalid file size");
+        }
+        if (checksum != null && !checksum.matches("[0-9a-fA-F]{64}")) {
+            throw new RuntimeException("Invalid checksum: expected a hex SHA-256");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        if (passkey != null) {
+            // Fail fast; the session is checked again on commit
+            sessionService.getActiveSessionId(passkey);
+        }
+        int size = chunkSize != null ? Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize)) : DEFAULT_CHUNK_SIZE;
+
+        ChunkedUpload upload = new ChunkedUpload();
+        upload.setId(UUID.randomUUID().toString());
+        upload.setUserId(userId);
+        upload.setPasskey(passkey);
+        upload.setFileName(fileName);
+        upload.setFileType(fileType);
+        upload.setTotalSize(totalSize);
+        upload.setChunkSize(size);
+        upload.setChecksum(checksum != null ? checksum.toLowerCase() : null);
+        // An empty file is still sent as one (empty) chunk
+        upload.setChunkCount(totalSize == 0 ? 1 : (int) ((totalSize + size - 1) / size));
+        upload.setMissingChunks(allChunks(upload.getChunkCount()));
+        return chunkedUploadRepository.save(upload);
+    }
+
+    @Override
+    public ChunkedUpload getStatus(String uploadId) {
+        ChunkedUpload upload = findUpload(uploadId);
+        upload.setMissingChunks(stagingArea.findMissingChunks(uploadId, upload.getChunkCount()));
+        return upload;
+    }
+
+    @Override
+    public void putChunk(String uploadId, int index, InputStream in) throws IOException {
+        ChunkedUpload upload = findUpload(uploadId);
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new RuntimeException("Chunk index out of range: " + index);
+        }
+        // Touched before writing, so the purge can't pick the upload while the chunk streams in
+        chunkedUploadRepository.touch(uploadId, new Date());
+        stagingArea.writeChunk(uploadId, index, in, upload.getChunkLength(index));
+    }
+
+    @Override
+    public FileEntity commit(String uploadId) throws IOException {
+        ChunkedUpload upload = findUpload(uploadId);
+        if (chunkedUploadRepository.claimForCommit(uploadId, new Date(), commitClaimExpiredBefore()) == 0) {
+            throw new RuntimeException("Upload is already being committed");
+        }
+
+        StoredBlob blob = null;
+        try {
+            List<Integer> missing = stagingArea.findMissingChunks(uploadId, upload.getChunkCount());
+            if (!missing.isEmpty()) {
+                throw new RuntimeException("Missing chunks: " + missing);
+            }
+            try (InputStream in = stagingArea.openAssembled(uploadId, upload.getChunkCount())) {
+                blob = blobStore.put(in);
+            }
+            if (blob.getSize() != upload.getTotalSize()) {
+                throw new IOException("Upload size mismatch: expected " + upload.getTotalSize() + " bytes but assembled " + blob.getSize());
+            }
+            if (upload.getChecksum() != null && !upload.getChecksum().equals(blob.getChecksum())) {
+                throw new IOException("Upload checksum mismatch: expected " + upload.getChecksum() + " but assembled " + blob.getChecksum());
+            }
+
+            FileEntity saved = upload.getPasskey() != null
+                    ? sessionService.addUploadedFile(upload.getUserId(), upload.getPasskey(), upload.getFileName(), upload.getFileType(), blob)
+                    : fileService.addUploadedFile(upload.getUserId(), upload.getFileName(), upload.getFileType(), blob);
+            blob = null;
+
+            chunkedUploadRepository.deleteById(uploadId);
+            stagingArea.discard(uploadId);
+            return saved;
+        } catch (IOException | RuntimeException e) {
+            if (blob != null) {
+                blobRegistry.abandon(blob);
+            }
+            // Keep the staged chunks so the client can fix what's missing and commit again
+            chunkedUploadRepository.releaseCommitClaim(uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public void abort(String uploadId) throws IOException {
+        ChunkedUpload upload = findUpload(uploadId);
+        chunkedUploadRepository.delete(upload);
+        stagingArea.discard(uploadId);
+    }
+
+    @Override
+    public int purgeStale(Date inactiveSince) {
+        int purged = 0;
+        for (String uploadId : chunkedUploadRepository.findInactiveIds(inactiveSince)) {
+            // Re-checked in the DELETE itself; uploads that got a chunk or a commit meanwhile are kept
+            if (chunkedUploadRepository.deleteIfAbandoned(uploadId, inactiveSince, commitClaimExpiredBefore()) == 0) {
+                continue;
+            }
+            try {
+                stagingArea.discard(uploadId);
+                purged++;
+            } catch (IOException e) {
+                System.err.println("Failed to discard upload " + uploadId + ": " + e.getMessage());
+            }
+        }
+        return purged;
+    }
+
+    private Date commitClaimExpiredBefore() {
+        return new Date(System.currentTimeMillis() - commitTimeoutMinutes * 60000);
+    }
+
+    private ChunkedUpload findUpload(String uploadId) {
+        return chunkedUploadRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    private static List<Integer> allChunks(int chunkCount) {
+        return IntStream.range(0, chunkCount).boxed().toList();
+    }
+}
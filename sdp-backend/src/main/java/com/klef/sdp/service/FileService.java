@@ -3,6 +3,9 @@ package com.klef.sdp.service;
 
 import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.model.FileMetadata;
+import com.klef.sdp.storage.StoredBlob;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -10,7 +13,10 @@ import java.util.List;
 
 public interface FileService {
     FileEntity addFile(int userId, MultipartFile file) throws IOException;
+    FileEntity addUploadedFile(int userId, String fileName, String fileType, StoredBlob blob);
     FileEntity getFile(Long id);
+    FileMetadata getFileMetadata(Long id) throws IOException;
+    Resource getFileContent(FileMetadata metadata);
     List<FileDTO> getUserFiles(String username);
     String delete(Long id);
     FileEntity copyFileToDrive(Long fileId, int userId) throws IOException;
@@ -2,14 +2,20 @@ package com.klef.sdp.service;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import com.klef.sdp.config.BlobMigrationJob;
 import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.model.FileMetadata;
 import com.klef.sdp.model.User;
 import com.klef.sdp.repository.FileRepository;
 import com.klef.sdp.repository.UserRepository;
+import com.klef.sdp.storage.BlobRegistry;
+import com.klef.sdp.storage.BlobStore;
+import com.klef.sdp.storage.StoredBlob;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
@@ -20,6 +26,18 @@ public class FileServiceImpl implements FileService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private FileUploadPipeline uploadPipeline;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private BlobMigrationJob blobMigrationJob;
+
     @Override
     public FileEntity addFile(int userId, MultipartFile f) throws IOException {
         User user = userRepository.findById(userId)
@@ -28,9 +46,20 @@ public class FileServiceImpl implements FileService {
         FileEntity fileEntity = new FileEntity();
         fileEntity.setFileName(f.getOriginalFilename());
         fileEntity.setFileType(f.getContentType());
-        fileEntity.setFileData(f.getBytes());
         fileEntity.setUser(user);
-        return fileRepository.save(fileEntity);
+        return uploadPipeline.store(fileEntity, f);
+    }
+
+    @Override
+    public FileEntity addUploadedFile(int userId, String fileName, String fileType, StoredBlob blob) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setFileName(fileName);
+        fileEntity.setFileType(fileType);
+        fileEntity.setUser(user);
+        return uploadPipeline.register(fileEntity, blob);
     }
 
     @Override
@@ -38,25 +67,41 @@ public class FileServiceImpl implements FileService {
         return fileRepository.findById(id).orElse(null);
     }
 
+    @Override
+    public FileMetadata getFileMetadata(Long id) throws IOException {
+        FileMetadata metadata = fileRepository.findMetadataById(id).orElse(null);
+        if (metadata != null && metadata.getStorageKey() == null) {
+            // Not migrated yet: move it into the store now so it can be served with ranges
+            blobMigrationJob.migrate(id);
+            metadata = fileRepository.findMetadataById(id).orElse(null);
+        }
+        return metadata;
+    }
+
+    @Override
+    public Resource getFileContent(FileMetadata metadata) {
+        return blobStore.getResource(metadata.getStorageKey());
+    }
+
     @Override
     public List<FileDTO> getUserFiles(String username) {
         System.out.println("Fetching files for username: " + username);
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
+        Integer userId = userRepository.findIdByUsername(username);
+        if (userId == null) {
             throw new RuntimeException("User not found: " + username);
         }
-        List<FileEntity> files = fileRepository.findByUserId(user.getId());
+        List<FileDTO> files = fileRepository.findSummariesByUserId(userId);
         System.out.println("Found " + files.size() + " files for username: " + username);
-        return files.stream()
-                    .map(FileDTO::new) // Now works because FileDTO has a constructor accepting FileEntity
-                    .collect(Collectors.toList());
+        return files;
     }
 
     @Override
+    @Transactional
     public String delete(Long id) {
         return fileRepository.findById(id)
             .map(file -> {
                 fileRepository.delete(file);
+                blobRegistry.release(file.getChecksum());
                 return "Deleted Successfully";
             })
             .orElse("Cannot Delete");
@@ -66,29 +111,37 @@ public class FileServiceImpl implements FileService {
     public FileEntity copyFileToDrive(Long fileId, int userId) throws IOException {
         FileEntity sourceFile = fileRepository.findById(fileId)
             .orElseThrow(() -> new RuntimeException("File not found"));
+        if (sourceFile.getStorageKey() == null) {
+            // Copies share the stored blob, so move a legacy row into the store first
+            blobMigrationJob.migrate(fileId);
+            sourceFile = fileRepository.findById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found"));
+            if (sourceFile.getStorageKey() == null) {
+                // Legacy row with no content to migrate
+                throw new RuntimeException("File not found");
+            }
+        }
         
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Check if user already has this file (to avoid duplicates)
-        List<FileEntity> userFiles = fileRepository.findByUserId(userId);
-        boolean fileExists = userFiles.stream()
-            .anyMatch(f -> f.getFileName().equals(sourceFile.getFileName()) && 
-                         f.getFileType().equals(sourceFile.getFileType()) &&
-                         java.util.Arrays.equals(f.getFileData(), sourceFile.getFileData()));
+        boolean fileExists = sourceFile.getChecksum() != null
+            && fileRepository.existsByUserIdAndChecksumAndFileNameAndFileType(
+                userId, sourceFile.getChecksum(), sourceFile.getFileName(), sourceFile.getFileType());
         
         if (fileExists) {
             throw new RuntimeException("File already exists in your drive");
         }
 
-        // Create a new file entity with the same data but associated with the new user
+        // Create a new file entity sharing the stored content, associated with the new user
         FileEntity newFile = new FileEntity();
         newFile.setFileName(sourceFile.getFileName());
         newFile.setFileType(sourceFile.getFileType());
-        newFile.setFileData(sourceFile.getFileData());
         newFile.setUser(user);
         newFile.setSession(null); // Remove session association when copying to drive
         
-        return fileRepository.save(newFile);
+        StoredBlob content = new StoredBlob(sourceFile.getStorageKey(), sourceFile.getFileSize(), sourceFile.getChecksum());
+        return uploadPipeline.register(newFile, content);
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.repository.FileRepository;
+import com.klef.sdp.storage.BlobRegistry;
+import com.klef.sdp.storage.BlobStore;
+import com.klef.sdp.storage.StoredBlob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Component
+public class FileUploadPipeline {
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private BlobRegistry blobRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Streams the upload into the blob store through a fixed buffer, then saves
+     * the entity with the resulting key, size and SHA-256. The payload is never
+     * held as a byte array, and identical content is stored only once.
+     */
+    public FileEntity store(FileEntity fileEntity, MultipartFile file) throws IOException {
+        StoredBlob blob;
+        // No transaction yet: don't hold a connection while the client is still sending
+        try (InputStream in = file.getInputStream()) {
+            blob = blobStore.put(in);
+        }
+        if (blob.getSize() != file.getSize()) {
+            blobRegistry.abandon(blob);
+            throw new IOException("Upload truncated: expected " + file.getSize() + " bytes but read " + blob.getSize());
+        }
+        return register(fileEntity, blob);
+    }
+
+    // Saves the row and takes its reference on the content in one transaction
+    public FileEntity register(FileEntity fileEntity, StoredBlob blob) {
+        fileEntity.setStorageKey(blob.getKey());
+        fileEntity.setFileSize(blob.getSize());
+        fileEntity.setChecksum(blob.getChecksum());
+        return transactionTemplate.execute(status -> {
+            blobRegistry.acquire(blob);
+            return fileRepository.save(fileEntity);
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.config.CacheConfig;
+import com.klef.sdp.config.ScheduledJobLock;
+import com.klef.sdp.model.CacheInvalidation;
+import com.klef.sdp.repository.CacheInvalidationRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Drops GroupLookup entries and profile thumbnails after a change, here and
+ * on every other pod.
+ * Each eviction is also written to cache_invalidations inside the caller's
+ * transaction; every pod polls that table and evicts the same keys. Polls
+ * re-read a few seconds of history so a row from a transaction that
+ * committed late is not skipped; evicting twice is harmless.
+ */
+@Component
+public class GroupCacheEvictor {
+    private static final long POLL_OVERLAP_MS = 5000;
+    private static final long RETENTION_MS = 3600000;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    private Date lastPoll;
+
+    @PostConstruct
+    public void init() {
+        // Caches start empty, so nothing written before now matters
+        lastPoll = cacheInvalidationRepository.databaseNow();
+    }
+
+    // The group's own entry and its member list
+    public void evictGroup(String groupId) {
+        evict(GroupLookup.GROUPS, groupId);
+        evict(GroupLookup.GROUP_MEMBERS, groupId);
+    }
+
+    public void evictUserGroups(String username) {
+        evict(GroupLookup.USER_GROUPS, username);
+    }
+
+    // Every size of the user's avatar
+    public void evictProfileThumbnails(int userId) {
+        for (int size : ThumbnailGenerator.SIZES) {
+            evict(CacheConfig.PROFILE_THUMBNAILS, userId + ":" + size);
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        cacheInvalidationRepository.record(cacheName, key);
+        evictLocally(cacheName, key);
+    }
+
+    private void evictLocally(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sdp.cache.invalidation-poll-ms:1000}")
+    public void pollInvalidations() {
+        Date now = cacheInvalidationRepository.databaseNow();
+        Date since = new Date(lastPoll.getTime() - POLL_OVERLAP_MS);
+        for (CacheInvalidation invalidation : cacheInvalidationRepository.findByCreatedAtAfter(since)) {
+            evictLocally(invalidation.getCacheName(), invalidation.getCacheKey());
+        }
+        lastPoll = now;
+    }
+
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void purgeOldInvalidations() {
+        // Polling stays on every pod; the purge only needs one
+        scheduledJobLock.runExclusively("cache-invalidation-purge", 600000, 3300000, () ->
+                cacheInvalidationRepository.deleteOlderThan(new Date(cacheInvalidationRepository.databaseNow().getTime() - RETENTION_MS)));
+    }
+}
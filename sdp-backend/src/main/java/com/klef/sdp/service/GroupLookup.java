@@ -0,0 +1,47 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.Group;
+import com.klef.sdp.repository.GroupMemberRepository;
+import com.klef.sdp.repository.GroupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cached reads of groups and memberships, which change far less often than
+ * they are read. Entries are dropped by GroupCacheEvictor whenever a group is
+ * created, joined, left or deleted, on this pod and on the others; the TTL in
+ * sdp.cache.spec only bounds how long a missed eviction could linger.
+ * Cached values are shared, so callers must not modify them.
+ */
+@Component
+public class GroupLookup {
+    public static final String GROUPS = "groups";
+    public static final String GROUP_MEMBERS = "groupMembers";
+    public static final String USER_GROUPS = "userGroups";
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    // Misses aren't cached, so a group is visible as soon as it is created
+    @Cacheable(cacheNames = GROUPS, unless = "#result == null")
+    public Optional<Group> findGroup(String groupId) {
+        return groupRepository.findById(groupId);
+    }
+
+    @Cacheable(GROUP_MEMBERS)
+    public List<String> findMembers(String groupId) {
+        return List.copyOf(groupMemberRepository.findUsernamesByGroupId(groupId));
+    }
+
+    @Cacheable(USER_GROUPS)
+    public List<String> findGroupIds(String username) {
+        return List.copyOf(groupMemberRepository.findGroupIdsByUsername(username));
+    }
+}
@@ -3,16 +3,26 @@ package com.klef.sdp.service;
 import com.klef.sdp.model.FileDTO;
 import com.klef.sdp.model.Group;
 import com.klef.sdp.model.Message;
+import com.klef.sdp.model.MessageSyncPage;
 
 import java.util.List;
 
 public interface GroupService {
+    int MAX_MESSAGES_PAGE_SIZE = 200;
+
+    // Size of the page getGroupMessages actually returns for a requested limit
+    static int messagesPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_MESSAGES_PAGE_SIZE));
+    }
+
     Group createGroup(String name, String password, String creatorUsername);
     Group joinGroup(String groupId, String password, String username);
     String leaveGroup(String groupId, String username);
     List<Group> getUserGroups(String username);
     Message sendMessage(String groupId, String senderUsername, String content, String type);
     List<Message> getGroupMessages(String groupId);
+    List<Message> getGroupMessages(String groupId, Long beforeId, Long afterId, int limit);
+    MessageSyncPage getMessagesSince(String username, Long sinceId, Long sinceTime, int limit);
     List<FileDTO> getSharedFiles(String username);
     void broadcastMessage(String groupId, Message message);
     List<Group> viewAllGroups();
@@ -1,31 +1,62 @@
 package com.klef.sdp.service;
 
 import com.klef.sdp.model.FileDTO;
-import com.klef.sdp.model.FileEntity;
 import com.klef.sdp.model.Group;
+import com.klef.sdp.model.GroupMember;
 import com.klef.sdp.model.Message;
+import com.klef.sdp.model.MessageSyncPage;
+import com.klef.sdp.repository.GroupMemberRepository;
 import com.klef.sdp.repository.GroupRepository;
 import com.klef.sdp.repository.MessageRepository;
+import com.klef.sdp.repository.SharedFileRepository;
 import com.klef.sdp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class GroupServiceImpl implements GroupService {
+    private static final int MAX_SYNC_PAGE_SIZE = 1000;
+    private static final int MAX_MESSAGE_LENGTH = 255; // messages.content column size
+
     @Autowired
     private GroupRepository groupRepository;
 
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Autowired
+    private GroupLookup groupLookup;
+
+    @Autowired
+    private GroupCacheEvictor groupCacheEvictor;
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private FileService fileService;
+    private SharedFileRepository sharedFileRepository;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private MessageIngestPipeline messageIngestPipeline;
+
+    // How far behind "now" a sync cursor is held, to cover the write-behind queue and pod clock skew
+    @Value("${sdp.messages.sync-settle-ms:10000}")
+    private long syncSettleMs;
 
     @Autowired
     private UserRepository userRepository;
@@ -34,6 +65,7 @@ public class GroupServiceImpl implements GroupService {
     private SimpMessagingTemplate messagingTemplate;
 
     @Override
+    @Transactional
     public Group createGroup(String name, String password, String creatorUsername) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Group name is required");
@@ -48,13 +80,17 @@ public class GroupServiceImpl implements GroupService {
         Group group = new Group();
         group.setName(name);
         group.setPassword(password);
+        Group savedGroup = groupRepository.save(group);
+        groupMemberRepository.save(new GroupMember(savedGroup.getId(), creatorUsername));
+        groupCacheEvictor.evictUserGroups(creatorUsername);
         List<String> usernames = new ArrayList<>();
         usernames.add(creatorUsername);
-        group.setUsernames(usernames);
-        return groupRepository.save(group);
+        savedGroup.setUsernames(usernames);
+        return savedGroup;
     }
 
     @Override
+    @Transactional
     public Group joinGroup(String groupId, String password, String username) {
         if (groupId == null || groupId.trim().isEmpty()) {
             throw new IllegalArgumentException("Group ID is required");
@@ -66,7 +102,7 @@ public class GroupServiceImpl implements GroupService {
             throw new IllegalArgumentException("Username is required");
         }
 
-        Optional<Group> groupOpt = groupRepository.findById(groupId);
+        Optional<Group> groupOpt = groupRepository.findByIdForShare(groupId);
         if (!groupOpt.isPresent()) {
             throw new RuntimeException("Group not found");
         }
@@ -74,16 +110,16 @@ public class GroupServiceImpl implements GroupService {
         if (!group.getPassword().equals(password)) {
             throw new RuntimeException("Incorrect password");
         }
-        List<String> usernames = group.getUsernames();
-        if (!usernames.contains(username)) {
-            usernames.add(username);
-            group.setUsernames(usernames);
-            groupRepository.save(group);
+        // Single-row insert; a repeated join is a no-op
+        if (groupMemberRepository.addMember(groupId, username) > 0) {
+            groupCacheEvictor.evictGroup(groupId);
+            groupCacheEvictor.evictUserGroups(username);
         }
-        return group;
+        return withMembers(group);
     }
 
     @Override
+    @Transactional
     public String leaveGroup(String groupId, String username) {
         if (groupId == null || groupId.trim().isEmpty()) {
             throw new IllegalArgumentException("Group ID is required");
@@ -92,22 +128,20 @@ public class GroupServiceImpl implements GroupService {
             throw new IllegalArgumentException("Username is required");
         }
 
-        Optional<Group> groupOpt = groupRepository.findById(groupId);
+        Optional<Group> groupOpt = groupRepository.findByIdForUpdate(groupId);
         if (!groupOpt.isPresent()) {
             throw new RuntimeException("Group not found");
         }
         Group group = groupOpt.get();
-        List<String> usernames = group.getUsernames();
-        if (!usernames.contains(username)) {
+        if (groupMemberRepository.removeMember(groupId, username) == 0) {
             throw new RuntimeException("User is not a member of this group");
         }
-        usernames.remove(username);
-        group.setUsernames(usernames);
-        if (usernames.isEmpty()) {
+        groupCacheEvictor.evictGroup(groupId);
+        groupCacheEvictor.evictUserGroups(username);
+        if (groupMemberRepository.countByGroupId(groupId) == 0) {
             groupRepository.delete(group);
             return "Group deleted as it has no members";
         } else {
-            groupRepository.save(group);
             return "Successfully left the group";
         }
     }
@@ -117,8 +151,16 @@ public class GroupServiceImpl implements GroupService {
         if (username == null || username.trim().isEmpty()) {
             throw new IllegalArgumentException("Username is required");
         }
-        List<Group> groups = groupRepository.findByUsernamesContaining(username);
-        return groups != null ? groups : new ArrayList<>();
+        List<Group> groups = new ArrayList<>();
+        for (String groupId : groupLookup.findGroupIds(username)) {
+            groupLookup.findGroup(groupId).ifPresent(cached -> {
+                // Cached groups are shared, so respond with a copy
+                Group group = new Group(cached.getName(), cached.getPassword(), new ArrayList<>(groupLookup.findMembers(groupId)));
+                group.setId(cached.getId());
+                groups.add(group);
+            });
+        }
+        return groups;
     }
 
     @Override
@@ -136,18 +178,24 @@ public class GroupServiceImpl implements GroupService {
             throw new IllegalArgumentException("Message type is required");
         }
 
-        if (!groupRepository.existsById(groupId)) {
+        if (content.length() > MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("Message content is too long");
+        }
+
+        if (groupLookup.findGroup(groupId).isEmpty()) {
             throw new RuntimeException("Group not found");
         }
         Message message = new Message();
+        message.setId(messageIdGenerator.nextId());
         message.setGroupId(groupId);
         message.setSenderUsername(senderUsername);
         message.setContent(content);
         message.setType(type);
         message.setTimestamp(new Date());
-        Message savedMessage = messageRepository.save(message);
-        broadcastMessage(groupId, savedMessage);
-        return savedMessage;
+        // Saved in the background in batches; subscribers get it right away
+        messageIngestPipeline.enqueue(message);
+        broadcastMessage(groupId, message);
+        return message;
     }
 
     @Override
@@ -155,47 +203,78 @@ public class GroupServiceImpl implements GroupService {
         if (groupId == null || groupId.trim().isEmpty()) {
             throw new IllegalArgumentException("Group ID is required");
         }
-        List<Message> messages = messageRepository.findByGroupId(groupId);
+        List<Message> messages = messageRepository.findByGroupIdOrderByIdAsc(groupId);
         return messages != null ? messages : new ArrayList<>();
     }
 
+    /**
+     * One page of history in chronological order. With beforeId it returns the
+     * newest messages older than that id (scrolling back), with afterId the
+     * oldest messages newer than it (catching up), otherwise the latest page.
+     */
     @Override
-    public List<FileDTO> getSharedFiles(String username) {
+    public List<Message> getGroupMessages(String groupId, Long beforeId, Long afterId, int limit) {
+        if (groupId == null || groupId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Group ID is required");
+        }
+        if (beforeId != null && afterId != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        PageRequest page = PageRequest.of(0, GroupService.messagesPageSize(limit));
+        if (afterId != null) {
+            return messageRepository.findByGroupIdAndIdGreaterThanOrderByIdAsc(groupId, afterId, page);
+        }
+        List<Message> messages = new ArrayList<>(beforeId != null
+                ? messageRepository.findByGroupIdAndIdLessThanOrderByIdDesc(groupId, beforeId, page)
+                : messageRepository.findByGroupIdOrderByIdDesc(groupId, page));
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * Messages newer than the cursor across all of the user's groups, oldest first.
+     * Without a cursor it returns no messages and the current settle point, which
+     * the client then passes as since (sinceTime, epoch ms, is still accepted).
+     * Ids are assigned before the row is written, so the returned cursor never
+     * moves past the oldest message this pod has not written yet, nor past
+     * now - syncSettleMs for messages still queued on other pods. Clients drop
+     * the repeats by id on the next sync.
+     */
+    @Override
+    public MessageSyncPage getMessagesSince(String username, Long sinceId, Long sinceTime, int limit) {
         if (username == null || username.trim().isEmpty()) {
             throw new IllegalArgumentException("Username is required");
         }
+        if (sinceId != null && sinceTime != null) {
+            throw new IllegalArgumentException("Use either since or sinceTime");
+        }
+        long settled = settledId();
+        if (sinceId == null && sinceTime == null) {
+            return new MessageSyncPage(new ArrayList<>(), settled, false);
+        }
+        long cursor = sinceId != null ? sinceId : MessageIdGenerator.firstIdAt(sinceTime) - 1;
+        int pageSize = Math.max(1, Math.min(limit, MAX_SYNC_PAGE_SIZE));
+        List<Message> messages = messageRepository.findForMemberSince(username, cursor, PageRequest.of(0, pageSize));
 
-        List<Group> userGroups = getUserGroups(username);
-        if (userGroups.isEmpty()) {
-            return new ArrayList<>();
-        }
-        List<String> groupIds = userGroups.stream()
-                .map(Group::getId)
-                .toList();
-        List<Message> messages = messageRepository.findAll().stream()
-                .filter(message -> groupIds.contains(message.getGroupId()))
-                .filter(message -> "file".equals(message.getType()))
-                .toList();
-        List<FileDTO> sharedFiles = new ArrayList<>();
-        for (Message message : messages) {
-            try {
-                Long fileId = Long.parseLong(message.getContent());
-                FileEntity file = fileService.getFile(fileId);
-                if (file != null) {
-                    FileDTO fileDTO = new FileDTO(file);
-                    Optional<Group> groupOpt = groupRepository.findById(message.getGroupId());
-                    if (groupOpt.isPresent()) {
-                        fileDTO.setGroupName(groupOpt.get().getName());
-                    } else {
-                        fileDTO.setGroupName("Unknown Group");
-                    }
-                    sharedFiles.add(fileDTO);
-                }
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid file ID in message content: " + message.getContent());
-            }
+        long last = messages.isEmpty() ? cursor : messages.get(messages.size() - 1).getId();
+        long next = Math.max(cursor, Math.min(last, settled));
+        // A full page means more to fetch right away, unless the rest is not settled yet
+        return new MessageSyncPage(messages, next, messages.size() == pageSize && next == last);
+    }
+
+    // Highest id below which every message is visible in the database
+    private long settledId() {
+        long settled = MessageIdGenerator.firstIdAt(System.currentTimeMillis() - syncSettleMs) - 1;
+        Long oldestUnwritten = messageIngestPipeline.getOldestUnwrittenId();
+        return oldestUnwritten != null ? Math.min(settled, oldestUnwritten - 1) : settled;
+    }
+
+    @Override
+    public List<FileDTO> getSharedFiles(String username) {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username is required");
         }
-        return sharedFiles;
+        return sharedFileRepository.findSharedWithUsername(username);
     }
 
     @Override
@@ -211,10 +290,11 @@ public class GroupServiceImpl implements GroupService {
 
     @Override
     public List<Group> viewAllGroups() {
-        return groupRepository.findAll();
+        return withMembers(groupRepository.findAll());
     }
 
     @Override
+    @Transactional
     public String deleteGroup(Long adminId, String groupId) {
         if (adminId == null) {
             throw new IllegalArgumentException("Admin ID is required");
@@ -228,8 +308,13 @@ public class GroupServiceImpl implements GroupService {
                     if (!admin.isAdmin()) {
                         throw new RuntimeException("Unauthorized: Only admins can delete groups");
                     }
-                    return groupRepository.findById(groupId)
+                    return groupRepository.findByIdForUpdate(groupId)
                             .map(group -> {
+                                for (String member : groupMemberRepository.findUsernamesByGroupId(groupId)) {
+                                    groupCacheEvictor.evictUserGroups(member);
+                                }
+                                groupCacheEvictor.evictGroup(groupId);
+                                groupMemberRepository.removeAllMembers(groupId);
                                 groupRepository.delete(group);
                                 return "Group deleted successfully";
                             })
@@ -237,4 +322,25 @@ public class GroupServiceImpl implements GroupService {
                 })
                 .orElse("Admin not found");
     }
-}
\ No newline at end of file
+
+    private Group withMembers(Group group) {
+        withMembers(List.of(group));
+        return group;
+    }
+
+    // Fills Group.usernames for responses with one query over all the given groups
+    private List<Group> withMembers(List<Group> groups) {
+        if (groups.isEmpty()) {
+            return groups;
+        }
+        Map<String, List<String>> usernamesByGroup = new HashMap<>();
+        List<String> groupIds = groups.stream().map(Group::getId).toList();
+        for (GroupMember member : groupMemberRepository.findByGroupIdIn(groupIds)) {
+            usernamesByGroup.computeIfAbsent(member.getGroupId(), id -> new ArrayList<>()).add(member.getUsername());
+        }
+        for (Group group : groups) {
+            group.setUsernames(usernamesByGroup.get(group.getId()));
+        }
+        return groups;
+    }
+}
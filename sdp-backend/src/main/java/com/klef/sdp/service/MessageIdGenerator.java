@@ -0,0 +1,171 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.repository.MessageIdNodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-ordered message ids assigned in memory, so a message can be broadcast
+ * before it is written. Layout: 41 bits of milliseconds since 2024-01-01,
+ * 5 bits of node id, 7 bits of per-millisecond sequence. That is 53 bits in
+ * total, so ids survive JSON parsing in the browser as exact numbers.
+ * Ids are far above any AUTO_INCREMENT value already in the messages table,
+ * and increase with time, which keeps the (group_id, id) pagination order.
+ *
+ * Each pod leases a distinct node id from the message_id_nodes table and
+ * keeps it alive with a heartbeat; a lease left by a crashed pod can be
+ * taken over once it expires. Expiry is judged in database time, so pod
+ * clocks never decide who holds a node. The heartbeat runs on its own thread
+ * so busy scheduled jobs cannot delay it, and nextId() stops issuing ids from
+ * a lease that is close to expiring without a successful heartbeat, measured
+ * on the local monotonic clock from before the heartbeat was sent.
+ */
+@Component
+public class MessageIdGenerator {
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final int MAX_NODES = 1 << NODE_BITS;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long LEASE_EXPIRY_SECONDS = 60;
+    private static final long LEASE_RENEW_MS = 20000;
+    // nextId() refuses a lease this close to expiring, in case another pod is about to take it
+    private static final long LEASE_MARGIN_MS = 15000;
+
+    @Autowired
+    private MessageIdNodeRepository messageIdNodeRepository;
+
+    // Pins the node id (0-31) instead of leasing one, e.g. for a single local instance
+    @Value("${sdp.messages.node-id:-1}")
+    private int configuredNodeId;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final Object leaseLock = new Object();
+    private volatile long nodeId = -1;
+    // System.nanoTime() when the last successful heartbeat or claim was sent
+    private volatile long leaseRenewedAt;
+    private ScheduledExecutorService leaseRenewer;
+    private long lastMillis = -1;
+    private long sequence;
+
+    @PostConstruct
+    public void acquireNodeId() {
+        if (configuredNodeId >= 0) {
+            nodeId = configuredNodeId & (MAX_NODES - 1);
+            return;
+        }
+        for (int id = 0; id < MAX_NODES; id++) {
+            messageIdNodeRepository.register(id);
+        }
+        synchronized (leaseLock) {
+            claimNodeId();
+        }
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "message-id-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseRenewer.scheduleWithFixedDelay(() -> {
+            try {
+                renewLease();
+            } catch (RuntimeException e) {
+                // Keep the renewer alive; nextId() refuses ids once the lease gets stale
+                System.err.println("Could not renew message id node " + nodeId + ": " + e.getMessage());
+            }
+        }, LEASE_RENEW_MS, LEASE_RENEW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void renewLease() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        synchronized (leaseLock) {
+            long sentAt = System.nanoTime();
+            if (nodeId >= 0 && messageIdNodeRepository.heartbeat((int) nodeId, owner) == 1) {
+                leaseRenewedAt = sentAt;
+                return;
+            }
+            // Lease expired (e.g. a long pause) and may be in use elsewhere; move to a free one
+            System.err.println("Lost message id node " + nodeId + ", claiming a new one");
+            nodeId = -1;
+            claimNodeId();
+        }
+    }
+
+    @PreDestroy
+    public void releaseNodeId() {
+        if (leaseRenewer != null) {
+            leaseRenewer.shutdownNow();
+        }
+        if (configuredNodeId < 0 && nodeId >= 0) {
+            messageIdNodeRepository.release((int) nodeId, owner);
+        }
+    }
+
+    // Throws IllegalStateException when no current node lease can be confirmed
+    public synchronized long nextId() {
+        if (configuredNodeId < 0 && leaseIsStale()) {
+            try {
+                renewLease();
+            } catch (RuntimeException e) {
+                System.err.println("Could not renew message id node " + nodeId + ": " + e.getMessage());
+            }
+        }
+        // Read once: the renewer may drop a lost node while this id is built
+        long node = nodeId;
+        if (node < 0 || (configuredNodeId < 0 && leaseIsStale())) {
+            throw new IllegalStateException("Message ids are unavailable, please retry");
+        }
+        long now = System.currentTimeMillis();
+        if (now < lastMillis) {
+            // Clock stepped back: keep issuing from the last timestamp rather than repeat ids
+            now = lastMillis;
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // All ids for this millisecond are used; move on to the next one
+                now = lastMillis + 1;
+                while (System.currentTimeMillis() < now) {
+                    Thread.onSpinWait();
+                }
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    // Smallest id that can be issued at the given time, to turn a timestamp into an id cursor
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    private boolean leaseIsStale() {
+        return nodeId < 0
+                || System.nanoTime() - leaseRenewedAt > TimeUnit.MILLISECONDS.toNanos(
+                        TimeUnit.SECONDS.toMillis(LEASE_EXPIRY_SECONDS) - LEASE_MARGIN_MS);
+    }
+
+    // Caller holds leaseLock
+    private void claimNodeId() {
+        for (int id = 0; id < MAX_NODES; id++) {
+            long sentAt = System.nanoTime();
+            if (messageIdNodeRepository.claim(id, owner, LEASE_EXPIRY_SECONDS) == 1) {
+                nodeId = id;
+                leaseRenewedAt = sentAt;
+                return;
+            }
+        }
+        throw new IllegalStateException("All " + MAX_NODES + " message id nodes are in use");
+    }
+}
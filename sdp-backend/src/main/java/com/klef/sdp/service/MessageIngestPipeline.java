@@ -0,0 +1,216 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for chat messages. Senders enqueue into a bounded
+ * queue and return immediately; one writer thread drains it and stores each
+ * batch with a single multi-row INSERT. When the queue is full, senders wait
+ * up to sdp.messages.enqueue-timeout-ms and are then refused, so a slow
+ * database pushes back on clients instead of growing the heap. Failed batches
+ * are retried until they succeed, and the queue is flushed on shutdown. A
+ * message that can never be saved (a bad row, or an id already taken, which
+ * means the node lease was lost) is not given a new id, since clients already
+ * have it under the broadcast one: it is logged in full as an error and
+ * counted in getFailedWrites() for /api/stats/websocket.
+ */
+@Component
+public class MessageIngestPipeline {
+    private static final String INSERT_PREFIX =
+            "INSERT INTO messages (id, group_id, sender_username, content, type, timestamp) VALUES ";
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private SharedFileIndexer sharedFileIndexer;
+
+    @Value("${sdp.messages.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${sdp.messages.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sdp.messages.enqueue-timeout-ms:2000}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<Message> queue;
+    // Ids of messages enqueued on this pod and not written yet, including the batch being written
+    private final ConcurrentSkipListSet<Long> unwrittenIds = new ConcurrentSkipListSet<>();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "message-writer");
+        writer.start();
+    }
+
+    // Throws IllegalStateException when the queue stays full (or the pod is shutting down)
+    public void enqueue(Message message) {
+        if (!running) {
+            throw new IllegalStateException("Server is shutting down, please retry");
+        }
+        boolean accepted;
+        unwrittenIds.add(message.getId());
+        try {
+            accepted = queue.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            unwrittenIds.remove(message.getId());
+            throw new IllegalStateException("Too many messages in flight, please retry");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Messages broadcast by this pod that could not be saved
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    // Oldest id this pod has accepted but not written yet, or null when all are written
+    public Long getOldestUnwrittenId() {
+        return unwrittenIds.ceiling(Long.MIN_VALUE);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        // The writer drains what is left before exiting
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            System.err.println("Shut down with " + queue.size() + " unsaved messages");
+        }
+    }
+
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running) {
+                    Message first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                try {
+                    writeWithRetry(batch);
+                } finally {
+                    for (Message message : batch) {
+                        unwrittenIds.remove(message.getId());
+                    }
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Interrupted by stop(): loop again to flush whatever is queued
+            }
+        }
+    }
+
+    private void writeWithRetry(List<Message> batch) {
+        long delay = 100;
+        while (true) {
+            try {
+                insert(batch);
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // A bad row would fail every retry; save the rest one by one to find it
+                if (batch.size() > 1) {
+                    for (Message message : batch) {
+                        writeWithRetry(List.of(message));
+                    }
+                    return;
+                }
+                failWrite(batch.get(0), e);
+                return;
+            } catch (RuntimeException e) {
+                if (!running && delay >= MAX_RETRY_DELAY_MS) {
+                    failedWrites.addAndGet(batch.size());
+                    System.err.println("ERROR: dropping " + batch.size() + " messages at shutdown: " + e.getMessage());
+                    return;
+                }
+                delay = backOff(delay, "Failed to save " + batch.size() + " messages, retrying: " + e.getMessage());
+            }
+        }
+        for (Message message : batch) {
+            sharedFileIndexer.record(message);
+        }
+    }
+
+    private void failWrite(Message message, DataIntegrityViolationException e) {
+        failedWrites.incrementAndGet();
+        if (e instanceof DuplicateKeyException) {
+            // Another pod issued this id, so our node lease is gone; move off it before more ids collide
+            System.err.println("ERROR: message id " + message.getId() + " is already taken, the id node lease was lost");
+            try {
+                messageIdGenerator.renewLease();
+            } catch (RuntimeException renewFailed) {
+                System.err.println("Could not renew message id node: " + renewFailed.getMessage());
+            }
+        }
+        System.err.println("ERROR: failed to save broadcast message " + message.getId() + " in group "
+                + message.getGroupId() + " from " + message.getSenderUsername() + " at "
+                + message.getTimestamp().getTime() + " (" + message.getType() + "): " + e.getMessage()
+                + "\nContent: " + message.getContent());
+    }
+
+    // Logs, waits and returns the next delay
+    private long backOff(long delay, String reason) {
+        System.err.println(reason);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ignored) {
+            // Keep retrying; stop() waits for the flush
+        }
+        return Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+    }
+
+    private void insert(List<Message> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * 6];
+        int i = 0;
+        for (Message message : batch) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+            args[i++] = message.getId();
+            args[i++] = message.getGroupId();
+            args[i++] = message.getSenderUsername();
+            args[i++] = message.getContent();
+            args[i++] = message.getType();
+            args[i++] = new Timestamp(message.getTimestamp().getTime());
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
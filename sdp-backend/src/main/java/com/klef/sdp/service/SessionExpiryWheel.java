@@ -0,0 +1,210 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.config.SessionCleanupTask;
+import com.klef.sdp.repository.SessionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Expires sessions at their expiresAt instead of on the next cleanup sweep.
+ * Each pod keeps the sessions it knows of in a hierarchical timer wheel:
+ * four levels of 64 slots, where a level-0 slot is one tick and each level
+ * above covers 64 slots of the one below. Scheduling and firing are O(1);
+ * an entry moves down a level when its higher slot comes around, so the
+ * ticker never looks at sessions that aren't due.
+ *
+ * Due sessions go to a reaper thread that deletes them in batches through
+ * SessionCleanupTask, which also tells the participants. The wheel is
+ * rebuilt from the sessions table at startup; sessions whose pod died
+ * before they expired are left to the one-minute sweep.
+ */
+@Component
+public class SessionExpiryWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private SessionCleanupTask sessionCleanupTask;
+
+    @Value("${sdp.sessions.expiry-tick-ms:10}")
+    private long tickMs;
+
+    @Value("${sdp.sessions.cleanup-batch-size:200}")
+    private int batchSize;
+
+    @SuppressWarnings("unchecked")
+    private final List<Expiry>[][] wheel = new List[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    private final BlockingQueue<Long> due = new LinkedBlockingQueue<>();
+    private Thread ticker;
+    private Thread reaper;
+    private volatile boolean running;
+
+    private static final class Expiry {
+        final long sessionId;
+        final long tick;
+
+        Expiry(long sessionId, long tick) {
+            this.sessionId = sessionId;
+            this.tick = tick;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        currentTick = System.currentTimeMillis() / tickMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<Object[]> active = sessionRepository.findExpiriesAfter(new Date());
+        for (Object[] row : active) {
+            schedule((Long) row[0], (Date) row[1]);
+        }
+        System.out.println("Scheduled expiry of " + active.size() + " active sessions");
+
+        running = true;
+        ticker = new Thread(this::tickLoop, "session-expiry-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+        reaper = new Thread(this::reapLoop, "session-expiry-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        if (reaper != null) {
+            reaper.interrupt();
+        }
+    }
+
+    // Fires on the first tick that starts after expiresAt, so the reaper always sees the session as expired
+    public void schedule(Long sessionId, Date expiresAt) {
+        List<Long> overdue = new ArrayList<>();
+        synchronized (this) {
+            if (size == 0) {
+                // The ticker stops while the wheel is empty; catch up without walking the idle ticks
+                currentTick = Math.max(currentTick, System.currentTimeMillis() / tickMs);
+            }
+            insert(new Expiry(sessionId, expiresAt.getTime() / tickMs + 1), overdue);
+            notifyAll();
+        }
+        due.addAll(overdue);
+    }
+
+    // Caller holds the monitor; entries already due go to overdue instead
+    private void insert(Expiry expiry, List<Long> overdue) {
+        long delta = expiry.tick - currentTick;
+        if (delta <= 0) {
+            overdue.add(expiry.sessionId);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // Beyond the top level's range: park it in the furthest slot and place it again when that comes around
+        long slotTick = Math.min(expiry.tick, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        int slot = (int) ((slotTick >> (SLOT_BITS * level)) & (SLOTS - 1));
+        if (wheel[level][slot] == null) {
+            wheel[level][slot] = new ArrayList<>();
+        }
+        wheel[level][slot].add(expiry);
+        size++;
+    }
+
+    private List<Expiry> take(int level, int slot) {
+        List<Expiry> entries = wheel[level][slot];
+        if (entries == null) {
+            return List.of();
+        }
+        wheel[level][slot] = null;
+        size -= entries.size();
+        return entries;
+    }
+
+    // Moves the wheel up to targetTick and returns the ids that came due
+    private synchronized List<Long> advance(long targetTick) {
+        List<Long> fired = new ArrayList<>();
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return fired;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Higher levels first, so entries they hand down are in place before the lower slots fire
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    int slot = (int) ((currentTick >> (SLOT_BITS * level)) & (SLOTS - 1));
+                    for (Expiry expiry : take(level, slot)) {
+                        insert(expiry, fired);
+                    }
+                }
+            }
+            for (Expiry expiry : take(0, (int) (currentTick & (SLOTS - 1)))) {
+                fired.add(expiry.sessionId);
+            }
+        }
+        return fired;
+    }
+
+    private void tickLoop() {
+        while (running) {
+            try {
+                synchronized (this) {
+                    while (size == 0 && running) {
+                        wait();
+                    }
+                }
+                long now = System.currentTimeMillis();
+                due.addAll(advance(now / tickMs));
+                Thread.sleep(tickMs - now % tickMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void reapLoop() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(due.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            due.drainTo(batch, batchSize - 1);
+            try {
+                sessionCleanupTask.reapSessions(batch);
+            } catch (RuntimeException e) {
+                // Still expired in the table, so the next sweep deletes them
+                System.err.println("Failed to expire " + batch.size() + " sessions: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.config.CacheConfig;
+import com.klef.sdp.model.ActiveSession;
+import com.klef.sdp.repository.SessionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cached passkey resolution for the session endpoints. Each entry lives
+ * exactly until its session's expiresAt (see CacheConfig), and a session is
+ * only deleted once it has expired, so an entry never outlives its session
+ * and no other pod needs to be told. The reaper still evicts what it
+ * deletes, which keeps the cache free of dead passkeys early.
+ */
+@Component
+public class SessionLookup {
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    // Misses aren't cached, so a session is visible as soon as it is created
+    @Cacheable(cacheNames = CacheConfig.ACTIVE_SESSIONS, unless = "#result == null")
+    public ActiveSession findSession(String passkey) {
+        return sessionRepository.findActiveSessionByPasskey(passkey);
+    }
+
+    @CacheEvict(CacheConfig.ACTIVE_SESSIONS)
+    public void evict(String passkey) {
+    }
+}
@@ -2,14 +2,25 @@ package com.klef.sdp.service;
 
 import com.klef.sdp.model.FileEntity;
 import com.klef.sdp.model.Session;
+import com.klef.sdp.model.SessionFileDTO;
+import com.klef.sdp.storage.StoredBlob;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
 
 public interface SessionService {
+    int MAX_FILES_PAGE_SIZE = 500;
+
+    // Size of the page getSessionFiles actually returns for a requested limit
+    static int filesPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_FILES_PAGE_SIZE));
+    }
+
     Session createSession(String passkey, String creatorUsername);
     Session joinSession(String passkey, String username);
     FileEntity uploadFile(int userId, String passkey, MultipartFile file) throws IOException;
-    List<FileEntity> getSessionFiles(String passkey);
+    FileEntity addUploadedFile(int userId, String passkey, String fileName, String fileType, StoredBlob blob);
+    Long getActiveSessionId(String passkey);
+    List<SessionFileDTO> getSessionFiles(Long sessionId, Long afterId, int limit);
 }
\ No newline at end of file
@@ -1,14 +1,21 @@
 package com.klef.sdp.service;
 
+import com.klef.sdp.model.ActiveSession;
 import com.klef.sdp.model.FileEntity;
 import com.klef.sdp.model.Session;
+import com.klef.sdp.model.SessionFileDTO;
+import com.klef.sdp.model.SessionMember;
 import com.klef.sdp.model.User;
 import com.klef.sdp.repository.FileRepository;
+import com.klef.sdp.repository.SessionMemberRepository;
 import com.klef.sdp.repository.SessionRepository;
 import com.klef.sdp.repository.UserRepository;
+import com.klef.sdp.storage.StoredBlob;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -21,6 +28,9 @@ public class SessionServiceImpl implements SessionService {
     @Autowired
     private SessionRepository sessionRepository;
 
+    @Autowired
+    private SessionMemberRepository sessionMemberRepository;
+
     @Autowired
     private FileRepository fileRepository;
 
@@ -30,71 +40,97 @@ public class SessionServiceImpl implements SessionService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private FileUploadPipeline uploadPipeline;
+
+    @Autowired
+    private SessionExpiryWheel sessionExpiryWheel;
+
+    @Autowired
+    private SessionLookup sessionLookup;
+
     @Override
+    @Transactional
     public Session createSession(String passkey, String creatorUsername) {
         if (sessionRepository.findByPasskey(passkey) != null) {
             throw new RuntimeException("Passkey already in use");
         }
         Session session = new Session();
         session.setPasskey(passkey);
+        Session savedSession = sessionRepository.save(session);
+        sessionMemberRepository.save(new SessionMember(savedSession.getId(), creatorUsername));
+        sessionExpiryWheel.schedule(savedSession.getId(), savedSession.getExpiresAt());
         List<String> usernames = new ArrayList<>();
         usernames.add(creatorUsername);
-        session.setUsernames(usernames);
-        return sessionRepository.save(session);
+        savedSession.setUsernames(usernames);
+        return savedSession;
     }
 
     @Override
+    @Transactional
     public Session joinSession(String passkey, String username) {
-        Session session = sessionRepository.findByPasskey(passkey);
+        Session session = sessionRepository.findByPasskeyForShare(passkey);
         if (session == null) {
             throw new RuntimeException("Invalid passkey");
         }
         if (session.getExpiresAt().before(new Date())) {
             throw new RuntimeException("Session has expired");
         }
-        List<String> usernames = session.getUsernames();
-        if (!usernames.contains(username)) {
-            usernames.add(username);
-            session.setUsernames(usernames);
-            sessionRepository.save(session);
-        }
+        // Single-row insert; a repeated join is a no-op
+        sessionMemberRepository.addMember(session.getId(), username);
+        session.setUsernames(sessionMemberRepository.findUsernamesBySessionId(session.getId()));
         return session;
     }
 
     @Override
     public FileEntity uploadFile(int userId, String passkey, MultipartFile file) throws IOException {
-        Session session = sessionRepository.findByPasskey(passkey);
-        if (session == null) {
-            throw new RuntimeException("Invalid passkey");
-        }
-        if (session.getExpiresAt().before(new Date())) {
-            throw new RuntimeException("Session has expired");
-        }
+        FileEntity fileEntity = newSessionFile(userId, passkey, file.getOriginalFilename(), file.getContentType());
+        FileEntity savedFile = uploadPipeline.store(fileEntity, file);
+
+        // Broadcast file upload to session participants
+        messagingTemplate.convertAndSend("/topic/session/" + passkey, savedFile.getId());
+        return savedFile;
+    }
+
+    @Override
+    public FileEntity addUploadedFile(int userId, String passkey, String fileName, String fileType, StoredBlob blob) {
+        FileEntity fileEntity = newSessionFile(userId, passkey, fileName, fileType);
+        FileEntity savedFile = uploadPipeline.register(fileEntity, blob);
+
+        messagingTemplate.convertAndSend("/topic/session/" + passkey, savedFile.getId());
+        return savedFile;
+    }
+
+    private FileEntity newSessionFile(int userId, String passkey, String fileName, String fileType) {
+        Long sessionId = getActiveSessionId(passkey);
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         FileEntity fileEntity = new FileEntity();
-        fileEntity.setFileName(file.getOriginalFilename());
-        fileEntity.setFileType(file.getContentType());
-        fileEntity.setFileData(file.getBytes());
+        fileEntity.setFileName(fileName);
+        fileEntity.setFileType(fileType);
         fileEntity.setUser(user);
-        fileEntity.setSession(session);
-        FileEntity savedFile = fileRepository.save(fileEntity);
-
-        // Broadcast file upload to session participants
-        messagingTemplate.convertAndSend("/topic/session/" + passkey, savedFile.getId());
-        return savedFile;
+        // Only the id is needed; the files.session_id foreign key rejects a session deleted meanwhile
+        fileEntity.setSession(sessionRepository.getReferenceById(sessionId));
+        return fileEntity;
     }
 
     @Override
-    public List<FileEntity> getSessionFiles(String passkey) {
-        Session session = sessionRepository.findByPasskey(passkey);
+    public Long getActiveSessionId(String passkey) {
+        // Usually answered from the cache; only the first lookup of a passkey goes to MySQL
+        ActiveSession session = sessionLookup.findSession(passkey);
         if (session == null) {
             throw new RuntimeException("Invalid passkey");
         }
         if (session.getExpiresAt().before(new Date())) {
             throw new RuntimeException("Session has expired");
         }
-        return fileRepository.findBySessionId(session.getId());
+        return session.getId();
+    }
+
+    @Override
+    public List<SessionFileDTO> getSessionFiles(Long sessionId, Long afterId, int limit) {
+        return fileRepository.findSessionFilesAfter(sessionId, afterId != null ? afterId : 0L,
+                PageRequest.of(0, SessionService.filesPageSize(limit)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.klef.sdp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klef.sdp.config.ScheduledJobLock;
+import com.klef.sdp.model.Message;
+import com.klef.sdp.repository.BackfillProgressRepository;
+import com.klef.sdp.repository.MessageRepository;
+import com.klef.sdp.repository.SharedFileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the shared_files link table in step with file messages. File messages
+ * carry either a bare file id (older clients) or a JSON object with a fileId.
+ * The JSON form may say visibility "selected" with a visibleTo list; such files
+ * are recorded as restricted, with their recipients, so shared-file listings
+ * only show them to the sender and those recipients, as the chat does.
+ */
+@Component
+public class SharedFileIndexer {
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final String BACKFILL_NAME = "shared-files";
+
+    @Autowired
+    private SharedFileRepository sharedFileRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private BackfillProgressRepository backfillProgressRepository;
+
+    @Autowired
+    private ScheduledJobLock scheduledJobLock;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final class FileShare {
+        final Long fileId;
+        final boolean restricted;
+        final List<String> recipients;
+
+        FileShare(Long fileId, boolean restricted, List<String> recipients) {
+            this.fileId = fileId;
+            this.restricted = restricted;
+            this.recipients = recipients;
+        }
+    }
+
+    public void record(Message message) {
+        if (!"file".equals(message.getType())) {
+            return;
+        }
+        FileShare share = parse(message.getContent());
+        if (share == null) {
+            System.err.println("Invalid file ID in message content: " + message.getContent());
+            return;
+        }
+        // Recipients first, so a restricted link is never visible without them
+        for (String username : share.recipients) {
+            sharedFileRepository.addRecipient(message.getId(), username);
+        }
+        sharedFileRepository.link(message.getId(), message.getGroupId(), share.fileId, message.getTimestamp(),
+                message.getSenderUsername(), share.restricted);
+    }
+
+    /**
+     * Links file messages sent before the table existed. Progress is kept in
+     * backfill_progress rather than derived from shared_files, which also
+     * holds live messages, so an interrupted run picks up where it stopped.
+     * One pod runs it at a time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        scheduledJobLock.runExclusively("shared-file-backfill", 3600000, 0, this::linkHistory);
+    }
+
+    private void linkHistory() {
+        backfillProgressRepository.register(BACKFILL_NAME);
+        long cursor = backfillProgressRepository.findLastId(BACKFILL_NAME);
+        int linked = 0;
+        List<Message> batch;
+        do {
+            batch = messageRepository.findByTypeAndIdGreaterThanOrderByIdAsc("file", cursor, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            for (Message message : batch) {
+                record(message);
+                cursor = message.getId();
+                linked++;
+            }
+            backfillProgressRepository.advance(BACKFILL_NAME, cursor);
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+        if (linked > 0) {
+            System.out.println("Linked " + linked + " shared file messages");
+        }
+    }
+
+    private FileShare parse(String content) {
+        if (content == null) {
+            return null;
+        }
+        String trimmed = content.trim();
+        try {
+            if (!trimmed.startsWith("{")) {
+                return new FileShare(Long.valueOf(trimmed), false, List.of());
+            }
+            JsonNode node = objectMapper.readTree(trimmed);
+            JsonNode fileId = node.get("fileId");
+            if (fileId == null || fileId.isNull()) {
+                return null;
+            }
+            // Same rule as the chat client: only "selected" limits who sees the file
+            boolean restricted = "selected".equals(node.path("visibility").asText());
+            List<String> recipients = new ArrayList<>();
+            if (restricted) {
+                for (JsonNode username : node.path("visibleTo")) {
+                    if (username.isTextual()) {
+                        recipients.add(username.asText());
+                    }
+                }
+            }
+            return new FileShare(Long.valueOf(fileId.asText()), restricted, recipients);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.ProfileThumbnail;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+// Turns an uploaded profile picture into square thumbnails of each standard size
+@Component
+public class ThumbnailGenerator {
+    public static final int[] SIZES = {32, 64, 256};
+    // Size of the marker row stored for a picture that gets no thumbnails
+    public static final int NO_THUMBNAIL = 0;
+
+    // Larger pictures are not decoded at all; a decoded pixel takes 4 bytes of heap
+    @Value("${sdp.thumbnails.max-pixels:24000000}")
+    private long maxPixels;
+
+    // Smallest standard size at least as large as requested, or -1 when only the original will do
+    public static int variantFor(int requested) {
+        for (int size : SIZES) {
+            if (size >= requested) {
+                return size;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Center-crops the image to a square and scales it to every size in SIZES
+     * (never upscaling past the cropped size). Images with transparency are
+     * kept as PNG, the rest become JPEG. Returns an empty list for formats
+     * ImageIO can't decode and for pictures over sdp.thumbnails.max-pixels,
+     * in which case the original is served instead.
+     */
+    public List<ProfileThumbnail> generate(int userId, byte[] original) throws IOException {
+        List<ProfileThumbnail> thumbnails = new ArrayList<>();
+        BufferedImage image = decode(userId, original);
+        if (image == null) {
+            return thumbnails;
+        }
+
+        int side = Math.min(image.getWidth(), image.getHeight());
+        boolean alpha = image.getColorModel().hasAlpha();
+        BufferedImage square = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        for (int size : SIZES) {
+            BufferedImage scaled = scale(square, Math.min(size, side), alpha);
+            String format = alpha ? "png" : "jpg";
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(scaled, format, out);
+            byte[] data = out.toByteArray();
+            thumbnails.add(new ProfileThumbnail(userId, size, alpha ? "image/png" : "image/jpeg", data, sha256(data)));
+        }
+        return thumbnails;
+    }
+
+    // Records that this picture has no thumbnails, so it is not decoded again on every request
+    public ProfileThumbnail noThumbnailMarker(int userId, byte[] original) {
+        return new ProfileThumbnail(userId, NO_THUMBNAIL, "none", new byte[0], sha256(original));
+    }
+
+    // Checks the dimensions from the header before decoding; null when unreadable or too large
+    private BufferedImage decode(int userId, byte[] original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    System.err.println("Profile picture of user " + userId + " has " + pixels + " pixels, not creating thumbnails");
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image until it is close to the target, which keeps large downscales smooth
+    private BufferedImage scale(BufferedImage source, int target, boolean alpha) {
+        BufferedImage current = source;
+        int side = source.getWidth();
+        do {
+            side = Math.max(target, side / 2);
+            BufferedImage next = new BufferedImage(side, side, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, side, side, null);
+            g.dispose();
+            current = next;
+        } while (side > target);
+        return current;
+    }
+
+    private String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
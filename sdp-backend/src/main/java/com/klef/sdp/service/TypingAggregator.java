@@ -0,0 +1,135 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.TypingMessage;
+import com.klef.sdp.model.TypingUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces typing events into per-user updates for each group. Behind a
+ * broker relay every pod broadcasts to the same topic, so updates only carry
+ * the users whose events this pod handled and clients merge them (see
+ * TypingUpdate). A typer is announced with their remaining TTL and announced
+ * again once half of it has been used up, so repeated events cost nothing in
+ * between; an explicit stop is announced once. Typers who stop sending events
+ * are not announced at all: clients drop them when the announced TTL runs out.
+ */
+@Component
+public class TypingAggregator {
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${sdp.typing.ttl-ms:5000}")
+    private long ttlMs;
+
+    // groupId -> (username -> typer)
+    private final Map<String, Map<String, Typer>> typers = new ConcurrentHashMap<>();
+
+    private static class Typer {
+        volatile long expiresAt;
+        // Expiry clients were last told about, 0 when never announced
+        long announcedUntil;
+        volatile boolean stopped;
+
+        Typer(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public void record(String groupId, TypingMessage message) {
+        String username = message.getUsername();
+        if (groupId == null || username == null || username.isBlank()) {
+            return;
+        }
+
+        // Per-group maps are only changed inside compute calls so a group emptied by
+        // flush() can't be dropped while another thread is adding to it
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        if (message.isIsTyping()) {
+            typers.compute(groupId, (id, group) -> {
+                if (group == null) {
+                    group = new ConcurrentHashMap<>();
+                }
+                Typer typer = group.get(username);
+                if (typer == null) {
+                    group.put(username, new Typer(expiresAt));
+                } else {
+                    typer.expiresAt = expiresAt;
+                    typer.stopped = false;
+                }
+                return group;
+            });
+        } else {
+            typers.computeIfPresent(groupId, (id, group) -> {
+                Typer typer = group.get(username);
+                if (typer != null) {
+                    // Kept until the next flush so clients hear about it
+                    typer.stopped = true;
+                }
+                return group;
+            });
+        }
+    }
+
+    @Scheduled(fixedRateString = "${sdp.typing.flush-interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<TypingUpdate> updates = new ArrayList<>();
+        for (String groupId : typers.keySet()) {
+            typers.computeIfPresent(groupId, (id, group) -> {
+                Map<String, Long> typing = new TreeMap<>();
+                List<String> stopped = new ArrayList<>();
+                for (Iterator<Map.Entry<String, Typer>> it = group.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, Typer> entry = it.next();
+                    Typer typer = entry.getValue();
+                    if (typer.stopped || typer.expiresAt <= now) {
+                        if (typer.stopped && typer.announcedUntil > now) {
+                            stopped.add(entry.getKey());
+                        }
+                        it.remove();
+                    } else if (typer.expiresAt - typer.announcedUntil >= ttlMs / 2) {
+                        typing.put(entry.getKey(), typer.expiresAt - now);
+                        typer.announcedUntil = typer.expiresAt;
+                    }
+                }
+                if (!typing.isEmpty() || !stopped.isEmpty()) {
+                    Collections.sort(stopped);
+                    updates.add(new TypingUpdate(groupId, typing, stopped));
+                }
+                return group.isEmpty() ? null : group;
+            });
+        }
+
+        for (TypingUpdate update : updates) {
+            messagingTemplate.convertAndSend("/topic/group/" + update.getGroupId() + "/typing", update);
+        }
+    }
+
+    // Users this pod currently shows as typing in the group
+    public List<String> getTypers(String groupId) {
+        Map<String, Typer> group = typers.get(groupId);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        long now = System.currentTimeMillis();
+        List<String> usernames = new ArrayList<>();
+        group.forEach((username, typer) -> {
+            if (!typer.stopped && typer.expiresAt > now) {
+                usernames.add(username);
+            }
+        });
+        Collections.sort(usernames);
+        return usernames;
+    }
+}
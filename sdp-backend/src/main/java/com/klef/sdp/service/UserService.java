@@ -1,6 +1,7 @@
 package com.klef.sdp.service;
 
 import com.klef.sdp.model.FileDTO;
+import com.klef.sdp.model.ProfileThumbnail;
 import com.klef.sdp.model.User;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -20,6 +21,7 @@ public interface UserService {
     boolean emailExists(String email);
     String updateProfilePicture(int userId, MultipartFile profilePicture);
     byte[] getProfilePicture(int userId);
+    ProfileThumbnail getProfileThumbnail(int userId, int size);
     String deleteUser(int adminId, int userId);
 
     // Password reset methods
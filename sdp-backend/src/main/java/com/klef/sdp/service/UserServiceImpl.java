@@ -1,25 +1,29 @@
 package com.klef.sdp.service;
 
+import com.klef.sdp.config.CacheConfig;
 import com.klef.sdp.model.FileDTO;
+import com.klef.sdp.model.ProfileThumbnail;
 import com.klef.sdp.model.User;
+import com.klef.sdp.otp.OtpStore;
 import com.klef.sdp.repository.FileRepository;
+import com.klef.sdp.repository.ProfileThumbnailRepository;
 import com.klef.sdp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -29,6 +33,15 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private FileRepository fileRepository;
 
+    @Autowired
+    private ProfileThumbnailRepository profileThumbnailRepository;
+
+    @Autowired
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @Autowired
+    private GroupCacheEvictor groupCacheEvictor;
+
     @Autowired
     private JavaMailSender mailSender;
 
@@ -36,20 +49,18 @@ public class UserServiceImpl implements UserService {
     @Value("${spring.mail.username}")
     private String fromAddress;
 
-    // Store OTP temporarily (in production, use Redis or database)
-    private Map<String, OTPData> otpStorage = new HashMap<>();
+    // Pending reset codes; shared through MySQL unless sdp.otp.store=memory
+    @Autowired
+    private OtpStore otpStore;
 
-    private static class OTPData {
-        String otp;
-        LocalDateTime expiryTime;
-        String email;
+    @Value("${sdp.otp.ttl-minutes:10}")
+    private int otpTtlMinutes;
 
-        OTPData(String otp, LocalDateTime expiryTime, String email) {
-            this.otp = otp;
-            this.expiryTime = expiryTime;
-            this.email = email;
-        }
-    }
+    // Wrong guesses allowed per email within the limit window, across resent codes
+    @Value("${sdp.otp.max-attempts:5}")
+    private int otpMaxAttempts;
+
+    private final SecureRandom random = new SecureRandom();
 
     @Override
     public String adduser(User u) {
@@ -78,9 +89,12 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public String delete(int id) {
         return userRepository.findById(id)
                 .map(user -> {
+                    profileThumbnailRepository.deleteByUserId(id);
+                    groupCacheEvictor.evictProfileThumbnails(id);
                     userRepository.delete(user);
                     return "Deleted Successfully";
                 })
@@ -132,14 +146,11 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public List<FileDTO> getFavouriteFiles(String username) {
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
+        Integer userId = userRepository.findIdByUsername(username);
+        if (userId == null) {
             throw new RuntimeException("User not found: " + username);
         }
-        return fileRepository.findByUserIdAndIsFavouriteTrue(user.getId())
-                .stream()
-                .map(FileDTO::new)
-                .collect(Collectors.toList());
+        return fileRepository.findFavouriteSummariesByUserId(userId);
     }
 
     @Override
@@ -153,6 +164,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public String updateProfilePicture(int userId, MultipartFile profilePicture) {
         return userRepository.findById(userId)
                 .map(user -> {
@@ -160,6 +172,7 @@ public class UserServiceImpl implements UserService {
                         user.setProfilePicture(profilePicture.getBytes());
                         user.setProfilePictureType(profilePicture.getContentType());
                         userRepository.save(user);
+                        replaceThumbnails(userId, user.getProfilePicture());
                         return "Profile picture updated successfully";
                     } catch (IOException e) {
                         throw new RuntimeException("Failed to upload profile picture: " + e.getMessage());
@@ -175,7 +188,53 @@ public class UserServiceImpl implements UserService {
                 .orElse(null);
     }
 
+    /**
+     * One of the fixed-size thumbnails (see ThumbnailGenerator.SIZES), or null
+     * when the user has no picture or it can't be decoded. Pictures uploaded
+     * before thumbnails existed get them on first request; a picture that can't
+     * be thumbnailed is marked so it is only tried once.
+     */
     @Override
+    @Transactional
+    @Cacheable(cacheNames = CacheConfig.PROFILE_THUMBNAILS, key = "#userId + ':' + #size", unless = "#result == null")
+    public ProfileThumbnail getProfileThumbnail(int userId, int size) {
+        return profileThumbnailRepository.findByUserIdAndSize(userId, size)
+                .orElseGet(() -> {
+                    if (profileThumbnailRepository.findByUserIdAndSize(userId, ThumbnailGenerator.NO_THUMBNAIL).isPresent()) {
+                        // Already tried for this picture; the original is served
+                        return null;
+                    }
+                    byte[] original = userRepository.findProfilePictureById(userId);
+                    if (original == null) {
+                        return null;
+                    }
+                    return replaceThumbnails(userId, original).stream()
+                            .filter(thumbnail -> thumbnail.getSize() == size)
+                            .findFirst()
+                            .orElse(null);
+                });
+    }
+
+    private List<ProfileThumbnail> replaceThumbnails(int userId, byte[] original) {
+        profileThumbnailRepository.deleteByUserId(userId);
+        groupCacheEvictor.evictProfileThumbnails(userId);
+        List<ProfileThumbnail> thumbnails;
+        try {
+            thumbnails = thumbnailGenerator.generate(userId, original);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not create thumbnails for user " + userId + ": " + e.getMessage());
+            thumbnails = List.of();
+        }
+        if (thumbnails.isEmpty()) {
+            // Unreadable or too large; the original is served instead until the next upload
+            profileThumbnailRepository.save(thumbnailGenerator.noThumbnailMarker(userId, original));
+            return List.of();
+        }
+        return profileThumbnailRepository.saveAll(thumbnails);
+    }
+
+    @Override
+    @Transactional
     public String deleteUser(int adminId, int userId) {
         return userRepository.findById(adminId)
                 .map(admin -> {
@@ -184,6 +243,8 @@ public class UserServiceImpl implements UserService {
                     }
                     return userRepository.findById(userId)
                             .map(user -> {
+                                profileThumbnailRepository.deleteByUserId(userId);
+                                groupCacheEvictor.evictProfileThumbnails(userId);
                                 userRepository.delete(user);
                                 return "User deleted successfully";
                             })
@@ -202,9 +263,7 @@ public class UserServiceImpl implements UserService {
         // Generate 6-digit OTP
         String otp = generateOTP();
 
-        // Store OTP with 10 minutes expiry
-        LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(10);
-        otpStorage.put(email, new OTPData(otp, expiryTime, email));
+        otpStore.save(email, otp, otpExpiry());
 
         // Send email
         try {
@@ -217,19 +276,13 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public String verifyOTPAndResetPassword(String email, String otp, String newPassword) {
-        OTPData storedOTP = otpStorage.get(email);
-
-        if (storedOTP == null) {
-            throw new RuntimeException("No OTP found. Please request a new password reset");
-        }
-
-        if (LocalDateTime.now().isAfter(storedOTP.expiryTime)) {
-            otpStorage.remove(email);
-            throw new RuntimeException("OTP has expired. Please request a new password reset");
-        }
-
-        if (!storedOTP.otp.equals(otp)) {
-            throw new RuntimeException("Invalid OTP. Please check and try again");
+        // A matching code is used up here, so it can't be replayed
+        switch (otpStore.verify(email, otp, otpMaxAttempts)) {
+            case MISSING -> throw new RuntimeException("No OTP found. Please request a new password reset");
+            case EXPIRED -> throw new RuntimeException("OTP has expired. Please request a new password reset");
+            case TOO_MANY_ATTEMPTS -> throw new RuntimeException("Too many incorrect attempts. Please try again later");
+            case INVALID -> throw new RuntimeException("Invalid OTP. Please check and try again");
+            case VALID -> { }
         }
 
         // OTP is valid, reset password
@@ -238,9 +291,6 @@ public class UserServiceImpl implements UserService {
             user.setPassword(newPassword);
             userRepository.save(user);
 
-            // Remove OTP from storage
-            otpStorage.remove(email);
-
             return "Password reset successfully";
         } else {
             throw new RuntimeException("User not found");
@@ -257,9 +307,8 @@ public class UserServiceImpl implements UserService {
         // Generate new OTP
         String otp = generateOTP();
 
-        // Update OTP with new expiry time
-        LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(10);
-        otpStorage.put(email, new OTPData(otp, expiryTime, email));
+        // Replaces the previous code with a fresh expiry; wrong guesses so far still count
+        otpStore.save(email, otp, otpExpiry());
 
         // Send email
         try {
@@ -270,8 +319,11 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    private Date otpExpiry() {
+        return new Date(System.currentTimeMillis() + otpTtlMinutes * 60000L);
+    }
+
     private String generateOTP() {
-        Random random = new Random();
         int otp = 100000 + random.nextInt(900000);
         return String.valueOf(otp);
     }
@@ -325,7 +377,7 @@ public class UserServiceImpl implements UserService {
                 + "                  <img src='https://via.placeholder.com/120x36?text=Logo' alt='Logo' width='120' style='display:block;margin:0 auto;'>"
                 + "                </div>"
                 + "                <h2 style='margin:0 0 8px;font-size:20px;color:#111827;font-weight:600;'>Password Reset</h2>"
-                + "                <p style='margin:0 0 22px;font-size:14px;color:#6b7280;'>Hi " + escapeHtml(username) + ", use the code below to reset your password. It expires in 10 minutes.</p>"
+                + "                <p style='margin:0 0 22px;font-size:14px;color:#6b7280;'>Hi " + escapeHtml(username) + ", use the code below to reset your password. It expires in " + otpTtlMinutes + " minutes.</p>"
                 + "                <div style='display:inline-block;padding:18px 26px;border-radius:10px;background:linear-gradient(180deg,#fbfbfd,#f7f9fb);box-shadow:0 2px 6px rgba(16,24,40,0.04);margin-bottom:18px;'>"
                 + "                  <span style='font-size:28px;letter-spacing:4px;font-weight:700;color:#0f172a;'>" + otp + "</span>"
                 + "                </div>"
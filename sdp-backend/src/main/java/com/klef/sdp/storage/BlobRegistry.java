@@ -0,0 +1,79 @@
+package com.klef.sdp.storage;
+
+import com.klef.sdp.model.BlobRecord;
+import com.klef.sdp.repository.BlobRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference counts for content in the BlobStore. Every files row holding a
+ * checksum owns one reference; content whose count drops to zero is deleted
+ * by {@link #collectGarbage} once it has stayed unreferenced for a while.
+ */
+@Component
+public class BlobRegistry {
+    @Autowired
+    private BlobRecordRepository blobRecordRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Call inside the transaction that saves the referencing files row
+    public void acquire(StoredBlob blob) {
+        blobRecordRepository.acquire(blob.getChecksum(), blob.getKey(), blob.getSize());
+        // The collector deletes content while holding the row lock that acquire just waited on
+        if (!blobStore.exists(blob.getKey())) {
+            throw new IllegalStateException("Stored content was collected concurrently, please retry the upload");
+        }
+    }
+
+    public void release(String checksum) {
+        if (checksum != null) {
+            blobRecordRepository.release(checksum);
+        }
+    }
+
+    // Drops the given number of references per checksum, e.g. for files removed in bulk
+    public void release(Map<String, Long> referenceCounts) {
+        referenceCounts.forEach(blobRecordRepository::releaseMany);
+    }
+
+    // For content that was written but will not be referenced (e.g. a truncated upload)
+    public void abandon(StoredBlob blob) {
+        blobRecordRepository.registerReleased(blob.getChecksum(), blob.getKey(), blob.getSize());
+    }
+
+    public int collectGarbage(Date releasedBefore, int limit) {
+        List<BlobRecord> candidates = blobRecordRepository.findReleasedBefore(releasedBefore, PageRequest.of(0, limit));
+        int deleted = 0;
+        for (BlobRecord candidate : candidates) {
+            Boolean removed = transactionTemplate.execute(status -> {
+                if (blobRecordRepository.deleteIfUnreferenced(candidate.getChecksum()) == 0) {
+                    return false; // Re-acquired since it was listed
+                }
+                try {
+                    blobStore.delete(candidate.getStorageKey());
+                } catch (IOException e) {
+                    status.setRollbackOnly();
+                    System.err.println("Failed to delete blob " + candidate.getStorageKey() + ": " + e.getMessage());
+                    return false;
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(removed)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
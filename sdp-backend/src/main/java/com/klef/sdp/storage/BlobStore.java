@@ -0,0 +1,24 @@
+package com.klef.sdp.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage for file contents, kept outside the relational database.
+ * Rows in the files table only hold the key returned by {@link #put}.
+ */
+public interface BlobStore {
+    // Consumes the stream and returns the key, size and SHA-256 of what was written
+    StoredBlob put(InputStream in) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    // Seekable view of the content, used for ranged and conditional downloads
+    Resource getResource(String key);
+
+    boolean exists(String key);
+
+    boolean delete(String key) throws IOException;
+}
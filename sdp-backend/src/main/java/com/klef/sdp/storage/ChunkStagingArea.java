@@ -0,0 +1,126 @@
+package com.klef.sdp.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Chunks of resumable uploads, one file per chunk under {root}/uploads/{uploadId}.
+ * Each chunk is written under a temporary name and renamed when complete, so a
+ * dropped connection never leaves a partial chunk behind and chunks of the same
+ * upload can arrive in parallel.
+ */
+@Component
+public class ChunkStagingArea {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path uploadsDir;
+
+    public ChunkStagingArea(@Value("${sdp.storage.root}") String root) throws IOException {
+        this.uploadsDir = Paths.get(root).toAbsolutePath().normalize().resolve("uploads");
+        Files.createDirectories(uploadsDir);
+    }
+
+    // Stores one chunk, rejecting it unless exactly expectedLength bytes arrive
+    public void writeChunk(String uploadId, int index, InputStream in, long expectedLength) throws IOException {
+        Path dir = uploadDir(uploadId);
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(index + "." + UUID.randomUUID() + ".tmp");
+        try {
+            long written = 0;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    written += n;
+                    if (written > expectedLength) {
+                        throw new IOException("Chunk " + index + " is larger than " + expectedLength + " bytes");
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            if (written != expectedLength) {
+                throw new IOException("Chunk " + index + " truncated: expected " + expectedLength + " bytes but read " + written);
+            }
+            // A retried chunk simply replaces the earlier copy
+            Files.move(temp, chunkPath(uploadId, index), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public List<Integer> findMissingChunks(String uploadId, int chunkCount) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            if (!Files.exists(chunkPath(uploadId, i))) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    // Reads all chunks back in order as one stream, opening each file only when it is reached
+    public InputStream openAssembled(String uploadId, int chunkCount) {
+        Enumeration<InputStream> chunks = new Enumeration<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < chunkCount;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (next >= chunkCount) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return Files.newInputStream(chunkPath(uploadId, next++));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return new SequenceInputStream(chunks);
+    }
+
+    public void discard(String uploadId) throws IOException {
+        Path dir = uploadDir(uploadId);
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private Path chunkPath(String uploadId, int index) {
+        return uploadDir(uploadId).resolve(index + ".chunk");
+    }
+
+    private Path uploadDir(String uploadId) {
+        if (uploadId == null || !uploadId.matches("[0-9a-f-]{36}")) {
+            throw new IllegalArgumentException("Invalid upload id: " + uploadId);
+        }
+        return uploadsDir.resolve(uploadId);
+    }
+}
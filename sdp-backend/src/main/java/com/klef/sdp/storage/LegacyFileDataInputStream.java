@@ -0,0 +1,67 @@
+package com.klef.sdp.storage;
+
+import com.klef.sdp.repository.FileRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a files.file_data value that predates the blob store, one
+ * SUBSTRING slice at a time, so only a single chunk is ever on the heap.
+ */
+public class LegacyFileDataInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final FileRepository fileRepository;
+    private final Long fileId;
+    private final long length;
+    private long position = 1; // SQL SUBSTRING is 1-based
+    private byte[] chunk = new byte[0];
+    private int offset;
+
+    public LegacyFileDataInputStream(FileRepository fileRepository, Long fileId, long length) {
+        this.fileRepository = fileRepository;
+        this.fileId = fileId;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[offset++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - offset);
+        System.arraycopy(chunk, offset, b, off, n);
+        offset += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        if (offset < chunk.length) {
+            return true;
+        }
+        if (position > length) {
+            return false;
+        }
+        int size = (int) Math.min(CHUNK_SIZE, length - position + 1);
+        byte[] next = fileRepository.findFileDataChunk(fileId, position, size);
+        if (next == null || next.length == 0) {
+            throw new IOException("File " + fileId + " was removed while it was being read");
+        }
+        chunk = next;
+        offset = 0;
+        position += next.length;
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package com.klef.sdp.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Content-addressed store on a local (or PVC-mounted) directory.
+ * A blob with SHA-256 "ab12cd..." lives at {root}/ab/12/ab12cd..., so the key
+ * is the checksum itself and identical uploads land on the same file.
+ */
+@Component
+@ConditionalOnProperty(name = "sdp.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileSystemBlobStore implements BlobStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tempDir;
+
+    public LocalFileSystemBlobStore(@Value("${sdp.storage.root}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.tempDir = this.root.resolve("tmp");
+        Files.createDirectories(tempDir);
+    }
+
+    @Override
+    public StoredBlob put(InputStream in) throws IOException {
+        // Write under a temporary name first; the final path depends on the hash
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".part");
+        ChecksumInputStream source = new ChecksumInputStream(in);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = source.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            }
+            String checksum = source.getChecksum();
+            Path target = resolve(checksum);
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                // Same content is already stored
+                Files.delete(temp);
+            } else {
+                // A concurrent writer of the same content may win the rename; the result is identical either way
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredBlob(checksum, source.getByteCount(), checksum);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public Resource getResource(String key) {
+        return new FileSystemResource(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
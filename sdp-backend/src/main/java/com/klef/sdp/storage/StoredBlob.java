@@ -0,0 +1,30 @@
+package com.klef.sdp.storage;
+
+public class StoredBlob {
+    private final String key;
+    private final long size;
+    private final String checksum;
+
+    public StoredBlob(String key, long size, String checksum) {
+        this.key = key;
+        this.size = size;
+        this.checksum = checksum;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredBlob{key='" + key + "', size=" + size + ", checksum='" + checksum + "'}";
+    }
+}
@@ -0,0 +1,70 @@
+package com.klef.sdp.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactPayloadCodecTests {
+    private static final String ISO = "2025-03-01T10:15:30.250+05:30";
+    private static final long MILLIS = OffsetDateTime.parse(ISO).toInstant().toEpochMilli();
+
+    private final CompactPayloadCodec codec = new CompactPayloadCodec();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    private JsonNode encode(String json) throws Exception {
+        return cborMapper.readTree(codec.toCbor(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void rewritesTimestampAndAtFieldsToEpochMillis() throws Exception {
+        JsonNode node = encode("{\"timestamp\":\"" + ISO + "\",\"editedAt\":\"" + ISO + "\"}");
+
+        assertTrue(node.get("timestamp").isIntegralNumber());
+        assertEquals(MILLIS, node.get("timestamp").asLong());
+        assertEquals(MILLIS, node.get("editedAt").asLong());
+    }
+
+    @Test
+    void leavesOtherFieldsAsText() throws Exception {
+        JsonNode node = encode("{\"content\":\"" + ISO + "\",\"sender\":\"a@b.com\",\"id\":7}");
+
+        assertEquals(ISO, node.get("content").asText());
+        assertTrue(node.get("content").isTextual());
+        assertEquals("a@b.com", node.get("sender").asText());
+        assertEquals(7, node.get("id").asInt());
+    }
+
+    @Test
+    void keepsUnparseableTimestampsAsText() throws Exception {
+        JsonNode node = encode("{\"timestamp\":\"yesterday\",\"createdAt\":\"2025-03-01T10:15:30\"}");
+
+        // No offset, so not an OffsetDateTime either
+        assertEquals("yesterday", node.get("timestamp").asText());
+        assertEquals("2025-03-01T10:15:30", node.get("createdAt").asText());
+    }
+
+    @Test
+    void rewritesNestedObjectsAndArrays() throws Exception {
+        JsonNode node = encode("{\"messages\":[{\"timestamp\":\"" + ISO + "\",\"content\":\"hi\"},"
+                + "{\"reply\":{\"sentAt\":\"" + ISO + "\"}}]}");
+
+        assertEquals(MILLIS, node.get("messages").get(0).get("timestamp").asLong());
+        assertEquals("hi", node.get("messages").get(0).get("content").asText());
+        assertEquals(MILLIS, node.get("messages").get(1).get("reply").get("sentAt").asLong());
+    }
+
+    @Test
+    void rejectsNonJsonPayloads() {
+        assertThrows(IOException.class,
+                () -> codec.toCbor("not json {".getBytes(StandardCharsets.UTF_8)));
+    }
+}
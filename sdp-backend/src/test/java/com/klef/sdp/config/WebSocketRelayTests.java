@@ -0,0 +1,119 @@
+package com.klef.sdp.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Relay mode against an in-process Artemis broker, standing in for the shared one in the cluster
+@SpringJUnitWebConfig({WebSocketConfig.class, CompactPayloadCodec.class})
+class WebSocketRelayTests {
+    private static int brokerPort;
+    private static EmbeddedActiveMQ broker;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StompBrokerRelayMessageHandler relay;
+
+    @DynamicPropertySource
+    static void relayToEmbeddedBroker(DynamicPropertyRegistry registry) throws Exception {
+        startBroker();
+        registry.add("sdp.websocket.broker", () -> "relay");
+        registry.add("sdp.websocket.relay.host", () -> "127.0.0.1");
+        registry.add("sdp.websocket.relay.port", () -> brokerPort);
+    }
+
+    private static void startBroker() throws Exception {
+        if (broker != null) {
+            return;
+        }
+        try (ServerSocket socket = new ServerSocket(0)) {
+            brokerPort = socket.getLocalPort();
+        }
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + brokerPort
+                + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker = null;
+        }
+    }
+
+    @Test
+    void broadcastsReachSubscribersOfTheSharedBroker() throws Exception {
+        waitForRelay();
+
+        // A client of another pod, subscribed on the broker directly
+        ReactorNettyTcpStompClient client = new ReactorNettyTcpStompClient("127.0.0.1", brokerPort);
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        StompSession session = client.connectAsync(new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+        try {
+            session.subscribe("/topic/group/3f2b8c1e-9a4d-4e7b-8c21-5d6f0a1b2c3d", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    received.add((Map<?, ?>) payload);
+                }
+            });
+            // Broadcasts sent before the subscription reaches the broker are not kept, so repeat
+            Map<?, ?> message = null;
+            for (int i = 0; i < 20 && message == null; i++) {
+                messagingTemplate.convertAndSend("/topic/group/3f2b8c1e-9a4d-4e7b-8c21-5d6f0a1b2c3d",
+                        Map.of("content", "hello relay"));
+                message = received.poll(500, TimeUnit.MILLISECONDS);
+            }
+
+            assertNotNull(message);
+            assertEquals("hello relay", message.get("content"));
+        } finally {
+            session.disconnect();
+            client.shutdown();
+        }
+    }
+
+    private void waitForRelay() throws InterruptedException {
+        for (int i = 0; i < 100 && !relay.isBrokerAvailable(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(relay.isBrokerAvailable(), "relay connected to the broker");
+    }
+}
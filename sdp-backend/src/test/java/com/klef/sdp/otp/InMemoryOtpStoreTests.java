@@ -0,0 +1,153 @@
+package com.klef.sdp.otp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryOtpStoreTests {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private InMemoryOtpStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryOtpStore();
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "maxSends", 3);
+        ReflectionTestUtils.setField(store, "limitWindowMinutes", 60);
+    }
+
+    @Test
+    void matchingCodeIsUsedUp() {
+        store.save("a@x", "123456", inMinutes(10));
+        assertEquals(OtpVerification.VALID, store.verify("a@x", "123456", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.MISSING, store.verify("a@x", "123456", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void expiredCodeIsRejected() {
+        store.save("a@x", "123456", inMinutes(-1));
+        assertEquals(OtpVerification.EXPIRED, store.verify("a@x", "123456", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.MISSING, store.verify("a@x", "123456", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void wrongGuessesUseUpTheCode() {
+        store.save("a@x", "123456", inMinutes(10));
+        assertEquals(OtpVerification.INVALID, store.verify("a@x", "000000", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.INVALID, store.verify("a@x", "000000", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.TOO_MANY_ATTEMPTS, store.verify("a@x", "000000", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.MISSING, store.verify("a@x", "123456", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void resendingKeepsTheFailures() {
+        store.save("a@x", "111111", inMinutes(10));
+        assertEquals(OtpVerification.INVALID, store.verify("a@x", "000000", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.INVALID, store.verify("a@x", "000000", MAX_ATTEMPTS));
+
+        store.save("a@x", "222222", inMinutes(10));
+        assertEquals(OtpVerification.TOO_MANY_ATTEMPTS, store.verify("a@x", "000000", MAX_ATTEMPTS));
+
+        // Locked for the rest of the window, even with the right code
+        store.save("a@x", "333333", inMinutes(10));
+        assertEquals(OtpVerification.TOO_MANY_ATTEMPTS, store.verify("a@x", "333333", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void sendsAreCappedPerWindow() {
+        store.save("a@x", "1", inMinutes(10));
+        store.save("a@x", "2", inMinutes(10));
+        store.save("a@x", "3", inMinutes(10));
+        assertThrows(IllegalStateException.class, () -> store.save("a@x", "4", inMinutes(10)));
+        assertEquals(OtpVerification.VALID, store.verify("a@x", "3", MAX_ATTEMPTS));
+        // Other emails are not affected
+        store.save("b@x", "1", inMinutes(10));
+    }
+
+    @Test
+    void aCorrectCodeDoesNotResetTheSendLimit() {
+        store.save("a@x", "1", inMinutes(10));
+        store.save("a@x", "2", inMinutes(10));
+        assertEquals(OtpVerification.VALID, store.verify("a@x", "2", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.MISSING, store.verify("a@x", "2", MAX_ATTEMPTS));
+
+        store.save("a@x", "3", inMinutes(10));
+        assertThrows(IllegalStateException.class, () -> store.save("a@x", "4", inMinutes(10)));
+    }
+
+    @Test
+    void countersStartOverWhenTheWindowEnds() {
+        ReflectionTestUtils.setField(store, "limitWindowMinutes", 0);
+        store.save("a@x", "1", inMinutes(10));
+        store.save("a@x", "2", inMinutes(10));
+        store.save("a@x", "3", inMinutes(10));
+        store.save("a@x", "4", inMinutes(10));
+        assertEquals(OtpVerification.INVALID, store.verify("a@x", "0", MAX_ATTEMPTS));
+        assertEquals(OtpVerification.VALID, store.verify("a@x", "4", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void purgeDropsEntriesWhoseCodeAndWindowHaveRunOut() {
+        ReflectionTestUtils.setField(store, "limitWindowMinutes", -5); // every window already over
+        store.save("old@x", "1", inMinutes(-3));
+        store.save("live@x", "1", inMinutes(10));
+
+        store.purgeExpired();
+
+        assertFalse(codes().containsKey("old@x"));
+        assertTrue(codes().containsKey("live@x"));
+    }
+
+    @Test
+    void purgeKeepsCountersWhileTheWindowRuns() {
+        store.save("a@x", "1", inMinutes(-3));
+
+        store.purgeExpired();
+
+        assertTrue(codes().containsKey("a@x"));
+    }
+
+    @Test
+    void purgeKeepsEntriesMovedToALaterBucket() {
+        ReflectionTestUtils.setField(store, "limitWindowMinutes", -5);
+        store.save("a@x", "1", inMinutes(-3));
+        // Replaced before the sweep; it still sits in the old bucket too
+        store.save("a@x", "2", inMinutes(10));
+
+        store.purgeExpired();
+
+        assertEquals(OtpVerification.VALID, store.verify("a@x", "2", MAX_ATTEMPTS));
+    }
+
+    @Test
+    void refusesNewEmailsWhenFullUntilEntriesExpire() {
+        ReflectionTestUtils.setField(store, "maxEntries", 2);
+        ReflectionTestUtils.setField(store, "limitWindowMinutes", -5);
+        store.save("old@x", "1", inMinutes(-3));
+        store.save("live@x", "1", inMinutes(10));
+
+        // Full, but saving purges the expired entry first
+        store.save("new@x", "1", inMinutes(10));
+        assertThrows(IllegalStateException.class, () -> store.save("more@x", "1", inMinutes(10)));
+        // Replacing a pending code doesn't need room
+        store.save("live@x", "2", inMinutes(10));
+    }
+
+    private static Date inMinutes(int minutes) {
+        return new Date(System.currentTimeMillis() + minutes * 60000L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> codes() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(store, "codes");
+    }
+}
@@ -0,0 +1,290 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.ChunkedUpload;
+import com.klef.sdp.model.FileEntity;
+import com.klef.sdp.repository.ChunkedUploadRepository;
+import com.klef.sdp.repository.UserRepository;
+import com.klef.sdp.storage.BlobRegistry;
+import com.klef.sdp.storage.BlobStore;
+import com.klef.sdp.storage.ChunkStagingArea;
+import com.klef.sdp.storage.LocalFileSystemBlobStore;
+import com.klef.sdp.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceImplTests {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int USER_ID = 7;
+
+    @TempDir
+    Path root;
+
+    private ChunkedUploadServiceImpl service;
+    private ChunkedUploadRepository repository;
+    private ChunkStagingArea stagingArea;
+    private BlobStore blobStore;
+    private BlobRegistry blobRegistry;
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new ChunkedUploadServiceImpl();
+        repository = mock(ChunkedUploadRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        stagingArea = new ChunkStagingArea(root.toString());
+        blobStore = spy(new LocalFileSystemBlobStore(root.toString()));
+        blobRegistry = mock(BlobRegistry.class);
+        fileService = mock(FileService.class);
+
+        ReflectionTestUtils.setField(service, "chunkedUploadRepository", repository);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "stagingArea", stagingArea);
+        ReflectionTestUtils.setField(service, "blobStore", blobStore);
+        ReflectionTestUtils.setField(service, "blobRegistry", blobRegistry);
+        ReflectionTestUtils.setField(service, "fileService", fileService);
+        ReflectionTestUtils.setField(service, "sessionService", mock(SessionService.class));
+        ReflectionTestUtils.setField(service, "commitTimeoutMinutes", 30L);
+
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+        when(repository.save(any(ChunkedUpload.class))).thenAnswer(invocation -> {
+            ChunkedUpload upload = invocation.getArgument(0);
+            when(repository.findById(upload.getId())).thenReturn(Optional.of(upload));
+            return upload;
+        });
+        when(repository.claimForCommit(anyString(), any(Date.class), any(Date.class))).thenReturn(1);
+        when(fileService.addUploadedFile(anyInt(), anyString(), any(), any(StoredBlob.class))).thenReturn(new FileEntity());
+    }
+
+    @Test
+    void initSplitsTheFileIntoChunks() {
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", "application/octet-stream", 2L * CHUNK_SIZE + 100, CHUNK_SIZE, null);
+
+        assertEquals(36, upload.getId().length());
+        assertEquals(3, upload.getChunkCount());
+        assertEquals(List.of(0, 1, 2), upload.getMissingChunks());
+        assertEquals(CHUNK_SIZE, upload.getChunkLength(1));
+        assertEquals(100, upload.getChunkLength(2));
+        assertNull(upload.getChecksum());
+    }
+
+    @Test
+    void initClampsTheChunkSizeAndSendsEmptyFilesAsOneChunk() {
+        assertEquals(CHUNK_SIZE, service.init(USER_ID, null, "a", null, 10, 1, null).getChunkSize());
+        assertEquals(64 * 1024 * 1024, service.init(USER_ID, null, "a", null, 10, Integer.MAX_VALUE, null).getChunkSize());
+        assertEquals(8 * 1024 * 1024, service.init(USER_ID, null, "a", null, 10, null, null).getChunkSize());
+        assertEquals(1, service.init(USER_ID, null, "empty", null, 0, null, null).getChunkCount());
+    }
+
+    @Test
+    void initRejectsBadRequests() {
+        RuntimeException noUser = assertThrows(RuntimeException.class, () -> service.init(99, null, "a", null, 10, null, null));
+        assertEquals("User not found", noUser.getMessage());
+        assertThrows(RuntimeException.class, () -> service.init(USER_ID, null, " ", null, 10, null, null));
+        assertThrows(RuntimeException.class, () -> service.init(USER_ID, null, "a", null, -1, null, null));
+        assertThrows(RuntimeException.class, () -> service.init(USER_ID, null, "a", null, 10, null, "not-a-sha256"));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void commitsChunksSentOutOfOrder() throws IOException {
+        byte[] data = randomBytes(2 * CHUNK_SIZE + 100);
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", "application/octet-stream", data.length, CHUNK_SIZE,
+                sha256(data).toUpperCase());
+        putChunk(upload, 2, data);
+        putChunk(upload, 0, data);
+        assertEquals(List.of(1), service.getStatus(upload.getId()).getMissingChunks());
+        putChunk(upload, 1, data);
+
+        service.commit(upload.getId());
+
+        StoredBlob blob = committedBlob();
+        assertEquals(data.length, blob.getSize());
+        assertEquals(sha256(data), blob.getChecksum());
+        try (var in = blobStore.open(blob.getKey())) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        verify(repository).deleteById(upload.getId());
+        assertEquals(List.of(0, 1, 2), stagingArea.findMissingChunks(upload.getId(), 3));
+    }
+
+    @Test
+    void aResentChunkReplacesTheFailedOne() throws IOException {
+        byte[] data = randomBytes(CHUNK_SIZE + 10);
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, data.length, CHUNK_SIZE, null);
+        // A truncated attempt is rejected and leaves the chunk missing
+        assertThrows(IOException.class, () -> service.putChunk(upload.getId(), 0,
+                new ByteArrayInputStream(Arrays.copyOf(data, 1000))));
+        assertEquals(List.of(0, 1), service.getStatus(upload.getId()).getMissingChunks());
+        byte[] corrupted = data.clone();
+        corrupted[5] ^= 1;
+        putChunk(upload, 0, corrupted);
+        putChunk(upload, 1, data);
+        putChunk(upload, 0, data);
+
+        service.commit(upload.getId());
+
+        assertEquals(sha256(data), committedBlob().getChecksum());
+        verify(repository, never()).releaseCommitClaim(anyString());
+    }
+
+    @Test
+    void rejectsChunkIndexesOutsideTheUpload() {
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, 10, CHUNK_SIZE, null);
+
+        assertThrows(RuntimeException.class, () -> service.putChunk(upload.getId(), 1, new ByteArrayInputStream(new byte[10])));
+        assertThrows(RuntimeException.class, () -> service.putChunk(upload.getId(), -1, new ByteArrayInputStream(new byte[10])));
+    }
+
+    @Test
+    void commitWithMissingChunksKeepsTheRestForARetry() throws IOException {
+        byte[] data = randomBytes(CHUNK_SIZE + 10);
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, data.length, CHUNK_SIZE, null);
+        putChunk(upload, 1, data);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.commit(upload.getId()));
+
+        assertEquals("Missing chunks: [0]", e.getMessage());
+        verify(repository).releaseCommitClaim(upload.getId());
+        verify(blobStore, never()).put(any());
+        assertEquals(List.of(0), stagingArea.findMissingChunks(upload.getId(), 2));
+    }
+
+    @Test
+    void commitRejectsAChecksumMismatchAndReleasesTheBlob() throws IOException {
+        byte[] data = randomBytes(100);
+        byte[] declared = data.clone();
+        declared[0] ^= 1;
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, data.length, CHUNK_SIZE, sha256(declared));
+        putChunk(upload, 0, data);
+
+        IOException e = assertThrows(IOException.class, () -> service.commit(upload.getId()));
+
+        assertTrue(e.getMessage().startsWith("Upload checksum mismatch"));
+        assertAbandonedAndRetryable(upload, sha256(data));
+    }
+
+    @Test
+    void commitRejectsASizeMismatchAndReleasesTheBlob() throws IOException {
+        byte[] data = randomBytes(100);
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, data.length, CHUNK_SIZE, null);
+        putChunk(upload, 0, data);
+        // e.g. a chunk file changed on disk after it was accepted
+        doAnswer(invocation -> {
+            StoredBlob stored = (StoredBlob) invocation.callRealMethod();
+            return new StoredBlob(stored.getKey(), stored.getSize() - 1, stored.getChecksum());
+        }).when(blobStore).put(any());
+
+        IOException e = assertThrows(IOException.class, () -> service.commit(upload.getId()));
+
+        assertTrue(e.getMessage().startsWith("Upload size mismatch"));
+        assertAbandonedAndRetryable(upload, sha256(data));
+    }
+
+    @Test
+    void refusesASecondConcurrentCommit() {
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, 10, CHUNK_SIZE, null);
+        when(repository.claimForCommit(eq(upload.getId()), any(Date.class), any(Date.class))).thenReturn(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.commit(upload.getId()));
+
+        assertEquals("Upload is already being committed", e.getMessage());
+        verify(repository, never()).releaseCommitClaim(anyString());
+    }
+
+    @Test
+    void purgeDiscardsOnlyUploadsStillAbandoned() throws IOException {
+        ChunkedUpload abandoned = service.init(USER_ID, null, "a.bin", null, 10, CHUNK_SIZE, null);
+        ChunkedUpload resumed = service.init(USER_ID, null, "b.bin", null, 10, CHUNK_SIZE, null);
+        putChunk(abandoned, 0, new byte[10]);
+        putChunk(resumed, 0, new byte[10]);
+        Date cutoff = new Date();
+        when(repository.findInactiveIds(cutoff)).thenReturn(List.of(abandoned.getId(), resumed.getId()));
+        when(repository.deleteIfAbandoned(eq(abandoned.getId()), eq(cutoff), any(Date.class))).thenReturn(1);
+        // A chunk arrived after the ids were selected, so the conditional DELETE skips it
+        when(repository.deleteIfAbandoned(eq(resumed.getId()), eq(cutoff), any(Date.class))).thenReturn(0);
+
+        assertEquals(1, service.purgeStale(cutoff));
+
+        assertEquals(List.of(0), stagingArea.findMissingChunks(abandoned.getId(), 1));
+        assertEquals(List.of(), stagingArea.findMissingChunks(resumed.getId(), 1));
+    }
+
+    @Test
+    void abortDropsTheUploadAndItsChunks() throws IOException {
+        ChunkedUpload upload = service.init(USER_ID, null, "a.bin", null, 10, CHUNK_SIZE, null);
+        putChunk(upload, 0, new byte[10]);
+
+        service.abort(upload.getId());
+
+        verify(repository).delete(upload);
+        assertEquals(List.of(0), stagingArea.findMissingChunks(upload.getId(), 1));
+    }
+
+    private void assertAbandonedAndRetryable(ChunkedUpload upload, String storedChecksum) {
+        ArgumentCaptor<StoredBlob> abandoned = ArgumentCaptor.forClass(StoredBlob.class);
+        verify(blobRegistry).abandon(abandoned.capture());
+        assertEquals(storedChecksum, abandoned.getValue().getChecksum());
+        verify(repository).releaseCommitClaim(upload.getId());
+        verify(repository, never()).deleteById(anyString());
+        verify(fileService, never()).addUploadedFile(anyInt(), anyString(), any(), any(StoredBlob.class));
+        // Chunks stay staged so the client can resend and commit again
+        assertEquals(List.of(), stagingArea.findMissingChunks(upload.getId(), upload.getChunkCount()));
+    }
+
+    private StoredBlob committedBlob() {
+        ArgumentCaptor<StoredBlob> blob = ArgumentCaptor.forClass(StoredBlob.class);
+        verify(fileService).addUploadedFile(eq(USER_ID), anyString(), any(), blob.capture());
+        return blob.getValue();
+    }
+
+    private void putChunk(ChunkedUpload upload, int index, byte[] data) throws IOException {
+        int from = index * upload.getChunkSize();
+        int to = (int) Math.min(data.length, (long) from + upload.getChunkSize());
+        service.putChunk(upload.getId(), index, new ByteArrayInputStream(Arrays.copyOfRange(data, from, to)));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
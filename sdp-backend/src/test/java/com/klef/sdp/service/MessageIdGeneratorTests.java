@@ -0,0 +1,127 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.repository.MessageIdNodeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MessageIdGeneratorTests {
+    private static final long EPOCH = 1704067200000L;
+
+    private static MessageIdGenerator pinnedTo(int nodeId) {
+        MessageIdGenerator generator = new MessageIdGenerator();
+        ReflectionTestUtils.setField(generator, "configuredNodeId", nodeId);
+        generator.acquireNodeId();
+        return generator;
+    }
+
+    @Test
+    void packsTimeNodeAndSequenceInto53Bits() {
+        MessageIdGenerator generator = pinnedTo(21);
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        assertTrue(id < 1L << 53, "fits in a JavaScript number");
+        long millis = (id >> 12) + EPOCH;
+        assertTrue(millis >= before && millis <= after);
+        assertEquals(21, (id >> 7) & 31);
+    }
+
+    @Test
+    void increasesWithinAndAcrossMilliseconds() {
+        MessageIdGenerator generator = pinnedTo(3);
+        long previous = generator.nextId();
+        // More than the 128 ids a millisecond holds, so the sequence rolls over too
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(3, (id >> 7) & 31);
+            previous = id;
+        }
+    }
+
+    @Test
+    void firstIdAtBoundsTheIdsOfThatMillisecond() {
+        MessageIdGenerator generator = pinnedTo(31);
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        assertTrue(MessageIdGenerator.firstIdAt(before) <= id);
+        assertTrue(MessageIdGenerator.firstIdAt(after + 1) > id);
+        assertEquals(0, MessageIdGenerator.firstIdAt(EPOCH));
+        assertEquals(0, MessageIdGenerator.firstIdAt(EPOCH - 1000));
+        assertEquals(1L << 12, MessageIdGenerator.firstIdAt(EPOCH + 1));
+    }
+
+    @Test
+    void reclaimsAStaleLeaseBeforeIssuingIds() {
+        MessageIdNodeRepository repository = mock(MessageIdNodeRepository.class);
+        when(repository.claim(eq(2), anyString(), eq(60L))).thenReturn(1);
+        MessageIdGenerator generator = leasing(repository);
+        ReflectionTestUtils.setField(generator, "nodeId", 7L);
+        ReflectionTestUtils.setField(generator, "leaseRenewedAt", System.nanoTime() - TimeUnit.SECONDS.toNanos(50));
+
+        // Node 7's lease was taken over, so the heartbeat fails and a free node is claimed
+        when(repository.heartbeat(eq(7), anyString())).thenReturn(0);
+        long id = generator.nextId();
+        assertEquals(2, (id >> 7) & 31);
+    }
+
+    @Test
+    void refusesIdsWhenNoLeaseCanBeConfirmed() {
+        MessageIdNodeRepository repository = mock(MessageIdNodeRepository.class);
+        when(repository.heartbeat(anyInt(), anyString())).thenReturn(0);
+        MessageIdGenerator generator = leasing(repository);
+        ReflectionTestUtils.setField(generator, "nodeId", 7L);
+        ReflectionTestUtils.setField(generator, "leaseRenewedAt", System.nanoTime() - TimeUnit.SECONDS.toNanos(50));
+
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void stopsIssuingFromALostNodeUntilANewOneIsClaimed() {
+        MessageIdNodeRepository repository = mock(MessageIdNodeRepository.class);
+        MessageIdGenerator generator = leasing(repository);
+        ReflectionTestUtils.setField(generator, "nodeId", 7L);
+        ReflectionTestUtils.setField(generator, "leaseRenewedAt", System.nanoTime());
+
+        // Heartbeat finds node 7 owned by another pod and no node is free
+        assertThrows(IllegalStateException.class, generator::renewLease);
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        when(repository.claim(eq(4), anyString(), eq(60L))).thenReturn(1);
+        assertEquals(4, (generator.nextId() >> 7) & 31);
+    }
+
+    @Test
+    void keepsUsingAFreshLease() {
+        MessageIdNodeRepository repository = mock(MessageIdNodeRepository.class);
+        MessageIdGenerator generator = leasing(repository);
+        ReflectionTestUtils.setField(generator, "nodeId", 7L);
+        ReflectionTestUtils.setField(generator, "leaseRenewedAt", System.nanoTime());
+
+        // No database round trip while the last heartbeat is recent
+        assertEquals(7, (generator.nextId() >> 7) & 31);
+        verifyNoInteractions(repository);
+    }
+
+    private static MessageIdGenerator leasing(MessageIdNodeRepository repository) {
+        MessageIdGenerator generator = new MessageIdGenerator();
+        ReflectionTestUtils.setField(generator, "configuredNodeId", -1);
+        ReflectionTestUtils.setField(generator, "messageIdNodeRepository", repository);
+        return generator;
+    }
+}
@@ -0,0 +1,103 @@
+package com.klef.sdp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionExpiryWheelTests {
+    private static final long TICK_MS = 1000;
+
+    private SessionExpiryWheel wheel;
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new SessionExpiryWheel();
+        ReflectionTestUtils.setField(wheel, "tickMs", TICK_MS);
+        // Ahead of the clock, so schedule() keeps it and the test decides when ticks pass
+        base = System.currentTimeMillis() / TICK_MS + 1000;
+        ReflectionTestUtils.setField(wheel, "currentTick", base);
+    }
+
+    @Test
+    void firesOnItsTick() {
+        wheel.schedule(1L, expiringBefore(base + 5));
+        assertEquals(List.of(), advance(base + 4));
+        assertEquals(List.of(1L), advance(base + 5));
+        assertEquals(List.of(), advance(base + 100));
+    }
+
+    @Test
+    void cascadesDownFromHigherLevels() {
+        long level1 = base + 64 * 3 + 7;
+        long level2 = base + 64 * 64 * 2 + 100;
+        long level3 = base + 64 * 64 * 64 + 5;
+        wheel.schedule(3L, expiringBefore(level3));
+        wheel.schedule(2L, expiringBefore(level2));
+        wheel.schedule(1L, expiringBefore(level1));
+
+        assertEquals(List.of(), advance(level1 - 1));
+        assertEquals(List.of(1L), advance(level1));
+        assertEquals(List.of(), advance(level2 - 1));
+        assertEquals(List.of(2L), advance(level2));
+        assertEquals(List.of(), advance(level3 - 1));
+        assertEquals(List.of(3L), advance(level3));
+    }
+
+    @Test
+    void firesEveryEntryInOrderAcrossLevels() {
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            wheel.schedule(id, expiringBefore(base + id * 37));
+            expected.add(id);
+        }
+        List<Long> fired = new ArrayList<>();
+        for (long tick = base + 1; tick <= base + 200 * 37; tick += 50) {
+            fired.addAll(advance(tick));
+        }
+        fired.addAll(advance(base + 200 * 37));
+        assertEquals(expected, fired);
+    }
+
+    @Test
+    void placesEntriesBeyondTheTopLevelAgain() {
+        long range = 1L << 24; // 64^4 ticks
+        long far = base + range + 500;
+        wheel.schedule(1L, expiringBefore(far));
+
+        assertEquals(List.of(), advance(base + range));
+        assertEquals(List.of(), advance(far - 1));
+        assertEquals(List.of(1L), advance(far));
+    }
+
+    @Test
+    void sendsOverdueEntriesStraightToTheReaper() {
+        wheel.schedule(1L, expiringBefore(base));
+        BlockingQueue<Long> due = getDue();
+        assertEquals(List.of(1L), new ArrayList<>(due));
+        assertTrue(advance(base + 10).isEmpty());
+    }
+
+    // A session expiring in the tick before `tick`, which the wheel fires on `tick`
+    private static Date expiringBefore(long tick) {
+        return new Date((tick - 1) * TICK_MS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> advance(long targetTick) {
+        return (List<Long>) ReflectionTestUtils.invokeMethod(wheel, "advance", targetTick);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BlockingQueue<Long> getDue() {
+        return (BlockingQueue<Long>) ReflectionTestUtils.getField(wheel, "due");
+    }
+}
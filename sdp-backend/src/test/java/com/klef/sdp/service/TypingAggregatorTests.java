@@ -0,0 +1,140 @@
+package com.klef.sdp.service;
+
+import com.klef.sdp.model.TypingMessage;
+import com.klef.sdp.model.TypingUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TypingAggregatorTests {
+    private static final long TTL_MS = 1000;
+    // Group ids are UUID strings
+    private static final String GROUP = "3f2b8c1e-9a4d-4e7b-8c21-5d6f0a1b2c3d";
+    private static final String OTHER_GROUP = "b7e4d2a9-1c3f-4a8e-9b6d-0e2f4a6c8d1b";
+
+    private TypingAggregator aggregator;
+    private SimpMessagingTemplate messagingTemplate;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new TypingAggregator();
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        ReflectionTestUtils.setField(aggregator, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(aggregator, "ttlMs", TTL_MS);
+    }
+
+    @Test
+    void announcesNewTypersOncePerFlush() {
+        for (int i = 0; i < 50; i++) {
+            aggregator.record(GROUP, typing("alice", true));
+        }
+        aggregator.record(GROUP, typing("bob", true));
+        aggregator.flush();
+
+        TypingUpdate update = onlyUpdateSentTo("/topic/group/" + GROUP + "/typing");
+        assertEquals(Set.of("alice", "bob"), update.getTyping().keySet());
+        assertTrue(update.getTyping().values().stream().allMatch(ms -> ms > 0 && ms <= TTL_MS));
+        assertEquals(List.of(), update.getStopped());
+
+        // Typing on within half the TTL needs no new update
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.flush();
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void announcesAnExplicitStopOnce() {
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.record(GROUP, typing("bob", true));
+        aggregator.flush();
+        aggregator.record(GROUP, typing("bob", false));
+        assertEquals(List.of("alice"), aggregator.getTypers(GROUP));
+        aggregator.flush();
+        aggregator.flush();
+
+        ArgumentCaptor<Object> updates = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSend(anyString(), updates.capture());
+        TypingUpdate stop = (TypingUpdate) updates.getAllValues().get(1);
+        assertEquals(List.of("bob"), stop.getStopped());
+        assertTrue(stop.getTyping().isEmpty());
+    }
+
+    @Test
+    void staysQuietAboutTypersNobodyWasToldAbout() {
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.record(GROUP, typing("alice", false));
+        aggregator.flush();
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertEquals(List.of(), aggregator.getTypers(GROUP));
+    }
+
+    @Test
+    void dropsExpiredTypersWithoutAnUpdate() throws InterruptedException {
+        ReflectionTestUtils.setField(aggregator, "ttlMs", 100L);
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.flush();
+        Thread.sleep(150);
+
+        assertEquals(List.of(), aggregator.getTypers(GROUP));
+        aggregator.flush();
+        // Clients expire alice from the TTL they were given
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(aggregator, "typers")).isEmpty());
+    }
+
+    @Test
+    void reannouncesTypersOnceHalfTheTtlIsUsed() throws InterruptedException {
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.flush();
+        Thread.sleep(TTL_MS / 2 + 100);
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.flush();
+
+        ArgumentCaptor<Object> updates = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSend(anyString(), updates.capture());
+        TypingUpdate refresh = (TypingUpdate) updates.getAllValues().get(1);
+        assertEquals(Set.of("alice"), refresh.getTyping().keySet());
+    }
+
+    @Test
+    void keepsGroupsApart() {
+        aggregator.record(GROUP, typing("alice", true));
+        aggregator.record(OTHER_GROUP, typing("bob", true));
+        aggregator.flush();
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/group/" + GROUP + "/typing"), any(Object.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/group/" + OTHER_GROUP + "/typing"), any(Object.class));
+        assertEquals(List.of("alice"), aggregator.getTypers(GROUP));
+        assertEquals(List.of("bob"), aggregator.getTypers(OTHER_GROUP));
+    }
+
+    private TypingUpdate onlyUpdateSentTo(String destination) {
+        ArgumentCaptor<Object> update = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq(destination), update.capture());
+        return (TypingUpdate) update.getValue();
+    }
+
+    private static TypingMessage typing(String username, boolean isTyping) {
+        TypingMessage message = new TypingMessage();
+        message.setUsername(username);
+        message.setIsTyping(isTyping);
+        return message;
+    }
+}
@@ -0,0 +1,86 @@
+package com.klef.sdp.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkStagingAreaTests {
+    @TempDir
+    Path root;
+
+    private ChunkStagingArea stagingArea;
+    private final String uploadId = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stagingArea = new ChunkStagingArea(root.toString());
+    }
+
+    @Test
+    void assemblesChunksInIndexOrderWhateverOrderTheyArrived() throws IOException {
+        stagingArea.writeChunk(uploadId, 2, stream("cc"), 2);
+        stagingArea.writeChunk(uploadId, 0, stream("aa"), 2);
+        assertEquals(List.of(1), stagingArea.findMissingChunks(uploadId, 3));
+        stagingArea.writeChunk(uploadId, 1, stream("bb"), 2);
+
+        assertEquals(List.of(), stagingArea.findMissingChunks(uploadId, 3));
+        try (InputStream in = stagingArea.openAssembled(uploadId, 3)) {
+            assertArrayEquals("aabbcc".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void aResentChunkReplacesTheEarlierCopy() throws IOException {
+        stagingArea.writeChunk(uploadId, 0, stream("old"), 3);
+        stagingArea.writeChunk(uploadId, 0, stream("new"), 3);
+
+        try (InputStream in = stagingArea.openAssembled(uploadId, 1)) {
+            assertArrayEquals("new".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void rejectsChunksOfTheWrongLengthWithoutLeavingAnything() throws IOException {
+        assertThrows(IOException.class, () -> stagingArea.writeChunk(uploadId, 0, stream("short"), 8));
+        assertThrows(IOException.class, () -> stagingArea.writeChunk(uploadId, 1, stream("too long"), 3));
+
+        assertEquals(List.of(0, 1), stagingArea.findMissingChunks(uploadId, 2));
+        try (Stream<Path> files = Files.list(root.resolve("uploads").resolve(uploadId))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void discardRemovesTheWholeUpload() throws IOException {
+        stagingArea.writeChunk(uploadId, 0, stream("aa"), 2);
+        stagingArea.discard(uploadId);
+
+        assertFalse(Files.exists(root.resolve("uploads").resolve(uploadId)));
+        // Discarding again is harmless
+        stagingArea.discard(uploadId);
+    }
+
+    @Test
+    void rejectsIdsThatCouldEscapeTheStagingDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> stagingArea.findMissingChunks("../../etc", 1));
+        assertThrows(IllegalArgumentException.class, () -> stagingArea.discard(null));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+}
@@ -38,11 +38,15 @@ import SockJS from "sockjs-client";
 import SharedNavBar from "../components/SharedNavBar";
 import config from "../../config";
 
+const MESSAGE_PAGE_SIZE = 100;
+
 export default function Chat() {
   const [user, setUser] = useState(null);
   const [groups, setGroups] = useState([]);
   const [activeGroup, setActiveGroup] = useState(null);
   const [messages, setMessages] = useState([]);
+  const [olderCursor, setOlderCursor] = useState(null); // id to page back from, null when history is fully loaded
+  const [loadingOlder, setLoadingOlder] = useState(false);
   const [newMessage, setNewMessage] = useState("");
   const [isLoading, setIsLoading] = useState(false);
   const [isWebSocketConnected, setIsWebSocketConnected] = useState(false);
@@ -71,21 +75,80 @@ export default function Chat() {
   const fileInputRef = useRef(null);
   
   const messagesEndRef = useRef(null);
+  const keepScrollRef = useRef(false);
   const stompClientRef = useRef(null);
   const activeGroupRef = useRef(null);
+  const syncCursorRef = useRef(null); // where the next reconnect catch-up starts
+  const [typers, setTypers] = useState({}); // username -> time they stop showing as typing
+  const typingSentAtRef = useRef(0); // when we last told the server we're typing
   const navigate = useNavigate();
   
   // Keep activeGroupRef in sync with activeGroup
   useEffect(() => {
     activeGroupRef.current = activeGroup;
+    setTypers({});
+    typingSentAtRef.current = 0;
   }, [activeGroup]);
 
+  // Drop typers whose announced time has run out
+  useEffect(() => {
+    const timer = setInterval(() => {
+      setTypers(prev => {
+        const now = Date.now();
+        const live = Object.fromEntries(Object.entries(prev).filter(([, until]) => until > now));
+        return Object.keys(live).length === Object.keys(prev).length ? prev : live;
+      });
+    }, 1000);
+    return () => clearInterval(timer);
+  }, []);
+
+  // Typing updates only list changes, so merge them into what we already know
+  const subscribeTyping = (client, groupId) => {
+    client.subscribe(`/topic/group/${groupId}/typing`, (message) => {
+      if (activeGroupRef.current?.id !== groupId) return;
+      try {
+        const update = JSON.parse(message.body);
+        const now = Date.now();
+        setTypers(prev => {
+          const next = { ...prev };
+          Object.entries(update.typing || {}).forEach(([username, ms]) => {
+            next[username] = now + ms;
+          });
+          (update.stopped || []).forEach(username => delete next[username]);
+          return next;
+        });
+      } catch (parseError) {
+        console.error("Typing parse error:", parseError);
+      }
+    });
+  };
+
+  // The server keeps us shown as typing for a few seconds, so only repeat it every 2s
+  const sendTyping = (isTyping) => {
+    const client = stompClientRef.current;
+    const group = activeGroupRef.current;
+    if (!client?.connected || !group || !user) return;
+    const now = Date.now();
+    if (isTyping && now - typingSentAtRef.current < 2000) return;
+    if (!isTyping && !typingSentAtRef.current) return;
+    typingSentAtRef.current = isTyping ? now : 0;
+    client.publish({
+      destination: `/app/group/${group.id}/typing`,
+      body: JSON.stringify({ username: user.username, isTyping })
+    });
+  };
+
   // Scroll to bottom of messages
   const scrollToBottom = () => {
     messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
   };
 
   useEffect(() => {
+    // Don't jump to the bottom when older history is prepended
+    if (keepScrollRef.current) {
+      keepScrollRef.current = false;
+      return;
+    }
     scrollToBottom();
   }, [messages]);
 
@@ -195,6 +258,7 @@ export default function Chat() {
         console.log(`✅ Successfully connected to WebSocket`);
         setConnectionStatus("connected");
         setIsWebSocketConnected(true);
+        syncMissedMessages();
         
         // Subscribe to all user's groups
         const currentGroups = groups.length > 0 ? groups : (activeGroup ? [activeGroup] : []);
@@ -280,6 +344,7 @@ export default function Chat() {
                 console.error("Parse error:", parseError);
               }
             });
+            subscribeTyping(client, group.id);
             console.log(`✅ Subscribed to group ${group.id}`);
           } catch (subscribeError) {
             console.error("Failed to subscribe to group:", group.id, subscribeError);
@@ -462,54 +527,62 @@ export default function Chat() {
     }
   };
 
-  // Fetch group messages
+  // Filter messages based on file visibility
+  const filterVisibleMessages = (allMessages) => {
+    return allMessages.filter((message) => {
+      if (message.type === 'file') {
+        try {
+          const fileData = JSON.parse(message.content);
+          
+          // If visibility is "all", show to everyone
+          if (fileData.visibility === 'all') {
+            return true;
+          }
+          
+          // If visibility is "selected", only show to:
+          // 1. The sender (always show your own files)
+          // 2. Users in the visibleTo list
+          if (fileData.visibility === 'selected') {
+            if (message.senderUsername === user?.username) {
+              return true; // Always show your own files
+            }
+            if (fileData.visibleTo && Array.isArray(fileData.visibleTo)) {
+              return fileData.visibleTo.includes(user?.username);
+            }
+            return false; // If no visibleTo list, don't show
+          }
+          
+          // Default: show if visibility is not set (backward compatibility)
+          return true;
+        } catch (e) {
+          // If parsing fails, show the message (backward compatibility)
+          return true;
+        }
+      }
+      // Always show text messages
+      return true;
+    });
+  };
+
+  // Fetch the latest page of group messages
   const fetchGroupMessages = async (groupId) => {
     if (!groupId) return;
     
     try {
       const response = await axios.get(`${config.url}/api/groups/messages/${groupId}`, {
+        params: { limit: MESSAGE_PAGE_SIZE },
         headers: {
           ...(localStorage.getItem('token') && { Authorization: `Bearer ${localStorage.getItem('token')}` })
         }
       });
       
-      // Filter messages based on file visibility
-      const allMessages = response.data || [];
-      const filteredMessages = allMessages.filter((message) => {
-        if (message.type === 'file') {
-          try {
-            const fileData = JSON.parse(message.content);
-            
-            // If visibility is "all", show to everyone
-            if (fileData.visibility === 'all') {
-              return true;
-            }
-            
-            // If visibility is "selected", only show to:
-            // 1. The sender (always show your own files)
-            // 2. Users in the visibleTo list
-            if (fileData.visibility === 'selected') {
-              if (message.senderUsername === user?.username) {
-                return true; // Always show your own files
-              }
-              if (fileData.visibleTo && Array.isArray(fileData.visibleTo)) {
-                return fileData.visibleTo.includes(user?.username);
-              }
-              return false; // If no visibleTo list, don't show
-            }
-            
-            // Default: show if visibility is not set (backward compatibility)
-            return true;
-          } catch (e) {
-            // If parsing fails, show the message (backward compatibility)
-            return true;
-          }
-        }
-        // Always show text messages
-        return true;
-      });
-      
+      const filteredMessages = filterVisibleMessages(response.data || []);
+      setOlderCursor(response.headers['x-next-cursor'] || null);
       setMessages(filteredMessages);
+      // Ids are time-ordered server-side, so the newest loaded one is a safe first sync cursor
+      if (!syncCursorRef.current && response.data?.length > 0) {
+        syncCursorRef.current = String(response.data[response.data.length - 1].id);
+      }
       console.log("✅ Messages fetched and filtered:", filteredMessages);
     } catch (error) {
       console.error("❌ Error fetching messages:", error);
@@ -517,16 +590,80 @@ export default function Chat() {
         duration: 4000,
         position: "top-center",
       });
+      setOlderCursor(null);
       setMessages([]);
     }
   };
 
+  // After (re)connecting, fetch only what was missed across all groups instead of reloading history
+  const syncMissedMessages = async () => {
+    if (!user?.username) return;
+
+    try {
+      let hasMore = true;
+      while (hasMore) {
+        // Without a cursor the server hands out its current one
+        const params = syncCursorRef.current ? { since: syncCursorRef.current } : {};
+        const response = await axios.get(`${config.url}/api/groups/sync/${user.username}`, {
+          params,
+          headers: {
+            ...(localStorage.getItem('token') && { Authorization: `Bearer ${localStorage.getItem('token')}` })
+          }
+        });
+        syncCursorRef.current = response.headers['x-next-cursor'] || syncCursorRef.current;
+        hasMore = response.headers['x-has-more'] === 'true';
+
+        const currentActiveGroup = activeGroupRef.current;
+        const missed = filterVisibleMessages(response.data || [])
+          .filter(m => m.groupId === currentActiveGroup?.id);
+        if (missed.length > 0) {
+          setMessages(prev => {
+            const known = new Set(prev.map(m => m.id));
+            const added = missed.filter(m => !known.has(m.id));
+            return added.length > 0 ? [...prev, ...added].sort((a, b) => a.id - b.id) : prev;
+          });
+        }
+      }
+    } catch (error) {
+      console.error("❌ Error syncing missed messages:", error);
+    }
+  };
+
+  // Fetch the page of history before the oldest loaded message
+  const fetchOlderMessages = async () => {
+    if (!activeGroup || !olderCursor || loadingOlder) return;
+
+    setLoadingOlder(true);
+    try {
+      const response = await axios.get(`${config.url}/api/groups/messages/${activeGroup.id}`, {
+        params: { before: olderCursor, limit: MESSAGE_PAGE_SIZE },
+        headers: {
+          ...(localStorage.getItem('token') && { Authorization: `Bearer ${localStorage.getItem('token')}` })
+        }
+      });
+
+      const olderMessages = filterVisibleMessages(response.data || []);
+      setOlderCursor(response.headers['x-next-cursor'] || null);
+      keepScrollRef.current = true;
+      setMessages(prev => [...olderMessages, ...prev]);
+    } catch (error) {
+      console.error("❌ Error fetching older messages:", error);
+      toast.error("Failed to load older messages", {
+        duration: 4000,
+        position: "top-center",
+      });
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
   // Send message
   const handleSendMessage = async () => {
     if (!newMessage.trim() || !activeGroup) return;
 
     const messageContent = newMessage.trim();
     setNewMessage("");
+    sendTyping(false);
 
     try {
       await axios.post(`${config.url}/api/groups/message/${activeGroup.id}`, {
@@ -833,6 +970,7 @@ export default function Chat() {
             console.error("Parse error:", parseError);
           }
         });
+        subscribeTyping(stompClientRef.current, group.id);
         console.log(`✅ Subscribed to group ${group.id}`);
       } catch (error) {
         console.error("Failed to subscribe to group:", error);
@@ -845,6 +983,9 @@ export default function Chat() {
     group.name.toLowerCase().includes(searchTerm.toLowerCase())
   );
 
+  // Everyone typing in the active group except us
+  const otherTypers = Object.keys(typers).filter(name => name !== user?.username).sort();
+
   // Format timestamp
   const formatTime = (timestamp) => {
     const date = new Date(timestamp);
@@ -1073,6 +1214,17 @@ export default function Chat() {
 
             {/* Messages Area */}
             <div className="flex-1 overflow-y-auto p-4 space-y-4">
+              {olderCursor && (
+                <div className="flex justify-center">
+                  <button
+                    onClick={fetchOlderMessages}
+                    disabled={loadingOlder}
+                    className="px-3 py-1 text-xs text-gray-600 bg-gray-100 hover:bg-gray-200 rounded-full transition-all duration-200 disabled:opacity-50"
+                  >
+                    {loadingOlder ? "Loading..." : "Load earlier messages"}
+                  </button>
+                </div>
+              )}
               {messages.length === 0 ? (
                 <div className="flex-1 flex items-center justify-center">
                   <div className="text-center">
@@ -1228,6 +1380,13 @@ export default function Chat() {
               <div ref={messagesEndRef} />
             </div>
 
+            {/* Typing Indicator */}
+            {otherTypers.length > 0 && (
+              <div className="bg-white px-4 pt-2 text-xs text-gray-500 italic">
+                {otherTypers.join(", ")} {otherTypers.length === 1 ? "is" : "are"} typing...
+              </div>
+            )}
+
             {/* Message Input */}
             <div className="bg-white border-t border-gray-200 p-4">
               <div className="flex items-center space-x-3">
@@ -1260,7 +1419,10 @@ export default function Chat() {
                   <input
                     type="text"
                     value={newMessage}
-                    onChange={(e) => setNewMessage(e.target.value)}
+                    onChange={(e) => {
+                      setNewMessage(e.target.value);
+                      sendTyping(e.target.value.trim() !== "");
+                    }}
                     onKeyPress={handleKeyPress}
                     placeholder={`Message ${activeGroup.name}...`}
                     className="w-full px-4 py-3 border border-gray-200 rounded-full focus:outline-none focus:border-black transition-all duration-200"
@@ -153,7 +153,7 @@ const ProfileDropdown = ({ user, onLogout, navigate }) => {
         <div className="relative">
           {user?.profilePicture ? (
             <img
-              src={`${config.url}/api/users/profile-picture/${user.id}`}
+              src={`${config.url}/api/users/profile-picture/${user.id}?size=64`}
               alt="Profile"
               className="w-10 h-10 rounded-full object-cover border-2 border-white/20"
               onError={(e) => {
@@ -190,7 +190,7 @@ const ProfileDropdown = ({ user, onLogout, navigate }) => {
               <div className="relative">
                 {user?.profilePicture ? (
                   <img
-                    src={`${config.url}/api/users/profile-picture/${user.id}`}
+                    src={`${config.url}/api/users/profile-picture/${user.id}?size=64`}
                     alt="Profile"
                     className="w-12 h-12 rounded-full object-cover border-2 border-gray-200"
                     onError={(e) => {
@@ -156,6 +156,20 @@ export default function PassShare() {
                     position: "top-center",
                   });
                   break;
+                case 'session_expired':
+                  toast.error("⏰ This session has expired", {
+                    duration: 5000,
+                    position: "top-center",
+                    id: "session-expired"
+                  });
+                  client.deactivate();
+                  stompClientRef.current = null;
+                  setIsWebSocketConnected(false);
+                  setConnectionStatus("disconnected");
+                  setIsInSession(false);
+                  setPasskey("");
+                  setFiles([]);
+                  break;
                 case 'session_created':
                   toast.success("🎉 Session created successfully!", {
                     duration: 3000,